@@ -19,6 +19,10 @@ public class FileOperationException extends VCSException {
         public FileAccessException(String message) {
             super("File access denied: " + message);
         }
+
+        public FileAccessException(String message, Throwable cause) {
+            super("File access denied: " + message, cause);
+        }
     }
 
     public static class FileCorruptedException extends FileOperationException {
@@ -2,14 +2,16 @@ package impl;
 
 import interfaces.Diffable;
 import interfaces.Mergeable;
+import interfaces.ObjectStore;
 import model.*;
 import utils.*;
 import exceptions.*;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.io.File;
-import java.nio.file.*;
 
 public class DiffGenerator implements Diffable, Mergeable {
     private final VersionManager versionManager;
@@ -31,35 +33,25 @@ public class DiffGenerator implements Diffable, Mergeable {
             throw new VersionException("Invalid version IDs");
         }
 
-        Map<String, String> effectiveOld = oldVer.getFileHashes();
-        Map<String, String> effectiveNew = newVer.getFileHashes();
-
-        if (effectiveNew.isEmpty() && !effectiveOld.isEmpty()) {
-            effectiveNew = effectiveOld;
-        }
-
         Map<String, ChangedLines> fileChanges = new HashMap<>();
-        Set<String> allFiles = new HashSet<>();
-        allFiles.addAll(effectiveOld.keySet());
-        allFiles.addAll(effectiveNew.keySet());
-
-        for (String filePath : allFiles) {
-            String oldHash = effectiveOld.get(filePath);
-            String newHash = effectiveNew.get(filePath);
-
-            if (!Objects.equals(oldHash, newHash)) {
-                ChangedLines changes = compareVersions(oldHash, newHash);
-                if (!changes.additions().isEmpty() ||
-                        !changes.deletions().isEmpty() ||
-                        !changes.modifications().isEmpty()) {
-                    fileChanges.put(filePath, changes);
-                }
+        for (SnapshotTree.Change change : changedFiles(oldVer, newVer)) {
+            ChangedLines changes = compareVersions(change.oldHash(), change.newHash());
+            if (!changes.additions().isEmpty() ||
+                    !changes.deletions().isEmpty() ||
+                    !changes.modifications().isEmpty()) {
+                fileChanges.put(change.path(), changes);
             }
         }
 
         return new DiffResult(oldVersion, newVersion, fileChanges);
     }
 
+    // Versions store only their own changes, so both sides are resolved to full snapshots first;
+    // the snapshot trees let the comparison skip every directory the two versions share.
+    private List<SnapshotTree.Change> changedFiles(VersionInfo oldVer, VersionInfo newVer) throws VCSException {
+        return versionManager.getSnapshotResolver().diff(oldVer.getVersionId(), newVer.getVersionId());
+    }
+
 
     @Override
     public DiffResult getDiff(String filePath) throws VCSException {
@@ -73,7 +65,7 @@ public class DiffGenerator implements Diffable, Mergeable {
             throw new FileOperationException("File is not tracked: " + filePath);
         }
 
-        String currentHash = HashUtils.calculateFileHash(file);
+        String currentHash = fileTracker.getStatCache().hash(file.toPath());
         String storedHash = metadata.getCurrentHash();
 
         Map<String, ChangedLines> changes = new HashMap<>();
@@ -91,7 +83,7 @@ public class DiffGenerator implements Diffable, Mergeable {
 
         if (metadata != null) {
             File file = new File(filePath);
-            String currentHash = HashUtils.calculateFileHash(file);
+            String currentHash = fileTracker.getStatCache().hash(file.toPath());
             String storedHash = metadata.getCurrentHash();
 
             if (!currentHash.equals(storedHash)) {
@@ -181,7 +173,41 @@ public class DiffGenerator implements Diffable, Mergeable {
         return new ChangedLines(additions, deletions, modifications);
     }
 
-    private List<DiffOp> computeDiffOps(List<String> oldLines, List<String> newLines) {
+    static List<Hunk> computeHunks(List<String> oldLines, List<String> newLines) {
+        List<Hunk> hunks = new ArrayList<>();
+        int oldStart = -1;
+        int oldEnd = -1;
+        List<String> replacement = new ArrayList<>();
+        int oldCursor = 0;
+
+        for (DiffOp op : computeDiffOps(oldLines, newLines)) {
+            if (op.type == DiffType.MATCH) {
+                if (oldStart != -1) {
+                    hunks.add(new Hunk(oldStart, oldEnd, replacement));
+                    oldStart = -1;
+                    replacement = new ArrayList<>();
+                }
+                oldCursor = op.oldLineNumber;
+                continue;
+            }
+            if (oldStart == -1) {
+                oldStart = oldCursor;
+                oldEnd = oldCursor;
+            }
+            if (op.type == DiffType.DELETE) {
+                oldEnd = op.oldLineNumber;
+                oldCursor = op.oldLineNumber;
+            } else {
+                replacement.add(op.text);
+            }
+        }
+        if (oldStart != -1) {
+            hunks.add(new Hunk(oldStart, oldEnd, replacement));
+        }
+        return hunks;
+    }
+
+    private static List<DiffOp> computeDiffOps(List<String> oldLines, List<String> newLines) {
         int m = oldLines.size(), n = newLines.size();
         int[][] dp = new int[m + 1][n + 1];
         for (int i = m - 1; i >= 0; i--) {
@@ -235,24 +261,20 @@ public class DiffGenerator implements Diffable, Mergeable {
     }
 
     private List<String> readFileLines(String hash) throws VCSException {
-        Path objectPath = Paths.get(versionManager.getRepositoryPath(), ".vcs", "objects", hash);
-        if (!Files.exists(objectPath)) {
+        ObjectStore objectStore = versionManager.getObjectStore();
+        if (!objectStore.has(hash)) {
             throw new FileOperationException("Object file not found: " + hash);
         }
 
-        try {
-            return Files.readAllLines(objectPath);
+        try (InputStream in = objectStore.open(hash)) {
+            return FileUtils.readLines(in);
         } catch (java.nio.charset.MalformedInputException e) {
-            try {
-                byte[] bytes = Files.readAllBytes(objectPath);
-                StringBuilder sb = new StringBuilder();
-                for (byte b : bytes) {
-                    sb.append(String.format("%02X", b));
-                }
-                return Collections.singletonList(sb.toString());
-            } catch (IOException ex) {
-                throw new FileOperationException("Failed to read binary file content for hash: " + hash, ex);
+            byte[] bytes = objectStore.get(hash);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : bytes) {
+                sb.append(String.format("%02X", b));
             }
+            return Collections.singletonList(sb.toString());
         } catch (IOException e) {
             throw new FileOperationException("Failed to read file content for hash: " + hash, e);
         }
@@ -269,6 +291,9 @@ public class DiffGenerator implements Diffable, Mergeable {
 
         currentConflicts.clear();
         Map<String, ChangedLines> diffChanges = getDiff(sourceVersion, targetVersion).changes();
+        SnapshotResolver resolver = versionManager.getSnapshotResolver();
+        Map<String, String> sourceHashes = resolver.resolveView(sourceVersion);
+        Map<String, String> targetHashes = resolver.resolveView(targetVersion);
 
         for (Map.Entry<String, ChangedLines> entry : diffChanges.entrySet()) {
             String filePath = entry.getKey();
@@ -279,8 +304,8 @@ public class DiffGenerator implements Diffable, Mergeable {
                 if (!conflicts.isEmpty()) {
                     currentConflicts.add(new ConflictInfo(
                             filePath,
-                            sourceInfo.getFileHashes().get(filePath),
-                            targetInfo.getFileHashes().get(filePath),
+                            sourceHashes.get(filePath),
+                            targetHashes.get(filePath),
                             conflicts
                     ));
                 }
@@ -303,15 +328,8 @@ public class DiffGenerator implements Diffable, Mergeable {
         }
 
         List<String> mergedLines = applyResolution(conflict, resolution);
-        String newHash = HashUtils.calculateStringHash(String.join("\n", mergedLines));
-
-        Path objectPath = Paths.get(versionManager.getRepositoryPath(), ".vcs", "objects", newHash);
-        try {
-            Files.write(objectPath, mergedLines);
-            currentConflicts.remove(conflict);
-        } catch (IOException e) {
-            throw new FileOperationException("Failed to save resolved file", e);
-        }
+        versionManager.getObjectStore().put(String.join("\n", mergedLines).getBytes(StandardCharsets.UTF_8));
+        currentConflicts.remove(conflict);
     }
 
     private ConflictInfo findConflict(String filePath) {
@@ -0,0 +1,191 @@
+package impl;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class FileEventBus implements AutoCloseable {
+    public enum BackpressurePolicy {
+        BLOCK,
+        DROP_OLDEST,
+        DROP_NEWEST,
+        CALLER_RUNS
+    }
+
+    private static final int DEFAULT_CAPACITY = 65536;
+    private static final int MAX_BATCH = 4096;
+
+    private final List<Consumer<String>> listeners;
+    private final List<Consumer<List<String>>> batchListeners;
+    private final BlockingQueue<List<String>> queue;
+    private final BackpressurePolicy policy;
+    private final ExecutorService executor;
+    private final AtomicLong pending;
+    private final AtomicLong dropped;
+    private boolean dispatching;
+
+    public FileEventBus(List<Consumer<String>> listeners) {
+        this(listeners, DEFAULT_CAPACITY, BackpressurePolicy.BLOCK);
+    }
+
+    // Per-event listeners stay synchronous on the caller's thread; only batch listeners are queued.
+    // Capacity counts publications, so a publishAll occupies one slot and is delivered as one batch.
+    public FileEventBus(List<Consumer<String>> listeners, int capacity, BackpressurePolicy policy) {
+        this.listeners = listeners;
+        this.batchListeners = new CopyOnWriteArrayList<>();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vcs-file-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = new AtomicLong();
+        this.dropped = new AtomicLong();
+    }
+
+    public void addBatchListener(Consumer<List<String>> listener) {
+        batchListeners.add(listener);
+        startDispatching();
+    }
+
+    public void removeBatchListener(Consumer<List<String>> listener) {
+        batchListeners.remove(listener);
+    }
+
+    public void publish(String filePath) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(filePath);
+        }
+        if (!batchListeners.isEmpty()) {
+            enqueue(List.of(filePath));
+        }
+    }
+
+    public void publishAll(Collection<String> filePaths) {
+        for (String filePath : filePaths) {
+            for (Consumer<String> listener : listeners) {
+                listener.accept(filePath);
+            }
+        }
+        if (!batchListeners.isEmpty() && !filePaths.isEmpty()) {
+            enqueue(List.copyOf(filePaths));
+        }
+    }
+
+    private void enqueue(List<String> events) {
+        pending.addAndGet(events.size());
+        switch (policy) {
+            case BLOCK -> {
+                try {
+                    queue.put(events);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(events);
+                }
+            }
+            case DROP_NEWEST -> {
+                if (!queue.offer(events)) {
+                    drop(events);
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(events)) {
+                    List<String> oldest = queue.poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                }
+            }
+            case CALLER_RUNS -> {
+                if (!queue.offer(events)) {
+                    deliver(events);
+                }
+            }
+        }
+    }
+
+    private void drop(List<String> events) {
+        dropped.addAndGet(events.size());
+        settle(events.size());
+    }
+
+    private synchronized void startDispatching() {
+        if (!dispatching) {
+            dispatching = true;
+            executor.execute(this::dispatchLoop);
+        }
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<String> batch;
+            try {
+                batch = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Small publications that piled up behind a slow listener are merged into one delivery.
+            if (batch.size() < MAX_BATCH && queue.peek() != null) {
+                List<String> merged = new ArrayList<>(batch);
+                List<String> next;
+                while (merged.size() < MAX_BATCH && (next = queue.poll()) != null) {
+                    merged.addAll(next);
+                }
+                batch = Collections.unmodifiableList(merged);
+            }
+            deliver(batch);
+        }
+    }
+
+    private void deliver(List<String> batch) {
+        try {
+            for (Consumer<List<String>> listener : batchListeners) {
+                try {
+                    listener.accept(batch);
+                } catch (RuntimeException e) {
+                    // One failing listener must not stop delivery to the others or kill the dispatcher.
+                }
+            }
+        } finally {
+            settle(batch.size());
+        }
+    }
+
+    private void settle(int events) {
+        if (pending.addAndGet(-events) == 0) {
+            synchronized (pending) {
+                pending.notifyAll();
+            }
+        }
+    }
+
+    // Waits until every queued event has been delivered or dropped.
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                pending.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
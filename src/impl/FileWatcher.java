@@ -0,0 +1,122 @@
+package impl;
+
+import exceptions.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+public class FileWatcher implements AutoCloseable {
+    private final FileTracker fileTracker;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Map<Path, String> trackedKeys;
+    private final Set<Path> watchedDirectories;
+    private final Set<String> dirty;
+    private final Thread thread;
+    private volatile boolean running;
+
+    FileWatcher(FileTracker fileTracker, long debounceMillis) throws FileOperationException {
+        this.fileTracker = fileTracker;
+        this.debounceMillis = debounceMillis;
+        this.trackedKeys = new ConcurrentHashMap<>();
+        this.watchedDirectories = ConcurrentHashMap.newKeySet();
+        this.dirty = ConcurrentHashMap.newKeySet();
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to create watch service", e);
+        }
+        for (String filePath : fileTracker.getTrackedFiles()) {
+            watch(filePath);
+        }
+        this.running = true;
+        this.thread = new Thread(this::run, "vcs-file-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void watch(String filePath) throws FileOperationException {
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        trackedKeys.put(file, filePath);
+        Path directory = file.getParent();
+        if (directory != null && watchedDirectories.add(directory)) {
+            try {
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            } catch (IOException e) {
+                watchedDirectories.remove(directory);
+                throw new FileOperationException("Failed to watch directory: " + directory, e);
+            }
+        }
+    }
+
+    public void unwatch(String filePath) {
+        trackedKeys.remove(Paths.get(filePath).toAbsolutePath().normalize());
+        dirty.remove(filePath);
+    }
+
+    public Set<String> getDirtyFiles() {
+        return Set.copyOf(dirty);
+    }
+
+    // Re-checks only files that saw events since the last call; listeners fire once per file.
+    public synchronized void verifyDirty() {
+        List<String> pending = new ArrayList<>(dirty);
+        dirty.removeAll(pending);
+        for (String filePath : pending) {
+            try {
+                fileTracker.updateFileStatus(filePath);
+            } catch (VCSException e) {
+                // The file vanished or became unreadable mid-burst; the next event will retry it.
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                WatchKey key = watchService.take();
+                collect(key);
+                // Keep absorbing events until the burst has been quiet for the debounce interval.
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key);
+                }
+                verifyDirty();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+    private void collect(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events were lost, so every tracked file has to be re-checked through the stat cache.
+                dirty.addAll(trackedKeys.values());
+                continue;
+            }
+            String filePath = trackedKeys.get(directory.resolve((Path) event.context()));
+            if (filePath != null) {
+                dirty.add(filePath);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(directory);
+        }
+    }
+
+    @Override
+    public void close() throws FileOperationException {
+        running = false;
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to close watch service", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package impl;
+
+import interfaces.ObjectStore;
+import utils.*;
+import exceptions.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+public class InMemoryObjectStore implements ObjectStore {
+    private final Map<String, byte[]> objects;
+
+    public InMemoryObjectStore() {
+        this.objects = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public String put(byte[] content) throws VCSException {
+        String hash = HashUtils.calculateBytesHash(content);
+        objects.putIfAbsent(hash, content.clone());
+        return hash;
+    }
+
+    @Override
+    public String put(Path file) throws VCSException {
+        if (!Files.isRegularFile(file)) {
+            throw new FileOperationException.FileNotFoundException(file.toString());
+        }
+        try {
+            return put(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to store file content: " + file, e);
+        }
+    }
+
+    @Override
+    public byte[] get(String hash) throws VCSException {
+        return find(hash).clone();
+    }
+
+    @Override
+    public InputStream open(String hash) throws VCSException {
+        return new ByteArrayInputStream(find(hash));
+    }
+
+    @Override
+    public boolean has(String hash) {
+        return objects.containsKey(hash);
+    }
+
+    @Override
+    public Stream<String> list() {
+        return List.copyOf(objects.keySet()).stream();
+    }
+
+    public int size() {
+        return objects.size();
+    }
+
+    private byte[] find(String hash) throws FileOperationException {
+        byte[] content = objects.get(hash);
+        if (content == null) {
+            throw new FileOperationException("Object file not found: " + hash);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,132 @@
+package impl;
+
+import interfaces.ObjectStore;
+import utils.*;
+import exceptions.*;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IngestPipeline implements AutoCloseable {
+    // Pipelines that do not ask for their own parallelism share one pool, so short-lived trackers leave no workers behind.
+    private static final ForkJoinPool SHARED_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final ObjectStore objectStore;
+    private final StatCache statCache;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final AtomicLong storedCount;
+    private final AtomicLong skippedCount;
+
+    public IngestPipeline(ObjectStore objectStore) {
+        this(objectStore, (StatCache) null);
+    }
+
+    public IngestPipeline(ObjectStore objectStore, int parallelism) {
+        this(objectStore, parallelism, null);
+    }
+
+    public IngestPipeline(ObjectStore objectStore, StatCache statCache) {
+        this(objectStore, SHARED_POOL, false, statCache);
+    }
+
+    public IngestPipeline(ObjectStore objectStore, int parallelism, StatCache statCache) {
+        this(objectStore, new ForkJoinPool(Math.max(1, parallelism)), true, statCache);
+    }
+
+    private IngestPipeline(ObjectStore objectStore, ForkJoinPool pool, boolean ownsPool, StatCache statCache) {
+        this.objectStore = objectStore;
+        this.statCache = statCache;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.storedCount = new AtomicLong();
+        this.skippedCount = new AtomicLong();
+    }
+
+    public String ingest(Path file) throws VCSException {
+        return ingest(file, null);
+    }
+
+    // When the caller already knows the file's previous hash it is most likely unchanged, so it is
+    // cheaper to hash first and skip the store entirely than to stream a temp object and drop it.
+    public String ingest(Path file, String expectedHash) throws VCSException {
+        if (expectedHash != null && objectStore.has(expectedHash)) {
+            String hash = statCache != null ? statCache.hash(file) : HashUtils.calculateFileHash(file.toFile());
+            if (hash.equals(expectedHash) || objectStore.has(hash)) {
+                skippedCount.incrementAndGet();
+                return hash;
+            }
+        }
+
+        BasicFileAttributes attributes = statCache != null ? StatCache.stat(file) : null;
+        storedCount.incrementAndGet();
+        String hash = objectStore.put(file);
+        if (statCache != null) {
+            statCache.record(file, attributes, hash);
+        }
+        return hash;
+    }
+
+    public Map<Path, String> ingestAll(Collection<Path> files) throws VCSException {
+        return ingestAll(files, Map.of());
+    }
+
+    public Map<Path, String> ingestAll(Collection<Path> files, Map<Path, String> expectedHashes)
+            throws VCSException {
+        List<Callable<String>> tasks = new ArrayList<>(files.size());
+        for (Path file : files) {
+            tasks.add(() -> ingest(file, expectedHashes.get(file)));
+        }
+
+        Map<Path, String> hashes = new LinkedHashMap<>();
+        Iterator<Path> paths = files.iterator();
+        try {
+            for (Future<String> result : pool.invokeAll(tasks)) {
+                hashes.put(paths.next(), result.get());
+            }
+        } catch (ExecutionException e) {
+            // Pool tasks may wrap checked exceptions, so look through the whole cause chain.
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof VCSException vcsException) {
+                    throw vcsException;
+                }
+            }
+            throw new FileOperationException("Failed to ingest files", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileOperationException("Interrupted while ingesting files", e);
+        }
+        objectStore.flush();
+        return hashes;
+    }
+
+    ForkJoinPool pool() {
+        return pool;
+    }
+
+    public long getStoredCount() {
+        return storedCount.get();
+    }
+
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    public StatCache getStatCache() {
+        return statCache;
+    }
+
+    public ObjectStore getObjectStore() {
+        return objectStore;
+    }
+
+    // Only a pool this pipeline created is shut down; the shared one lives as long as the process.
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+}
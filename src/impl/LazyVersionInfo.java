@@ -0,0 +1,89 @@
+package impl;
+
+import model.VersionInfo;
+import utils.PersistentHashMap;
+import java.io.Serial;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.Function;
+
+// A version known only by its journal header, which is the one object kept per version. The message is
+// read from the journal record on request; the file table is read the first time it is needed and kept
+// in the owner's bounded cache, not here.
+class LazyVersionInfo extends VersionInfo {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final transient VersionJournal.Header header;
+    private final transient Function<VersionJournal.Header, VersionInfo> bodies;
+    private final transient Function<VersionJournal.Header, String> messages;
+
+    LazyVersionInfo(VersionJournal.Header header, Function<VersionJournal.Header, VersionInfo> bodies,
+                    Function<VersionJournal.Header, String> messages) {
+        super(null, null, null, null, Map.of(), null, false);
+        this.header = header;
+        this.bodies = bodies;
+        this.messages = messages;
+    }
+
+    VersionJournal.Header header() {
+        return header;
+    }
+
+    private VersionInfo body() {
+        return bodies.apply(header);
+    }
+
+    @Override
+    public String getVersionId() {
+        return header.versionId();
+    }
+
+    @Override
+    public String getMessage() {
+        return messages.apply(header);
+    }
+
+    @Override
+    public LocalDateTime getTimestamp() {
+        return header.timestamp();
+    }
+
+    @Override
+    public String getAuthor() {
+        return header.author();
+    }
+
+    @Override
+    public Map<String, String> getFileHashes() {
+        return body().getFileHashes();
+    }
+
+    @Override
+    public PersistentHashMap<String, String> getFileHashesView() {
+        return body().getFileHashesView();
+    }
+
+    @Override
+    public int getFileCount() {
+        return header.fileCount() >= 0 ? header.fileCount() : body().getFileCount();
+    }
+
+    @Override
+    public String getTreeHash() {
+        return header.treeHash();
+    }
+
+    @Override
+    public boolean isDelta() {
+        return header.delta();
+    }
+
+    // Serialized copies carry the full contents, since the journal they came from may not be there to read.
+    @Serial
+    private Object writeReplace() {
+        VersionInfo body = body();
+        return new VersionInfo(getVersionId(), body.getMessage(), getTimestamp(), getAuthor(), body.getFileHashesView(),
+                getTreeHash(), isDelta());
+    }
+}
@@ -0,0 +1,199 @@
+package impl;
+
+import interfaces.ObjectStore;
+import utils.*;
+import exceptions.*;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+public class LooseObjectStore implements ObjectStore {
+    private final String repositoryPath;
+    private final boolean compress;
+    private PackedObjectStore packs;
+
+    public LooseObjectStore(String repositoryPath) {
+        this(repositoryPath, true);
+    }
+
+    public LooseObjectStore(String repositoryPath, boolean compress) {
+        this.repositoryPath = repositoryPath;
+        this.compress = compress;
+    }
+
+    @Override
+    public String put(byte[] content) throws VCSException {
+        String hash = HashUtils.calculateBytesHash(content);
+        if (!has(hash)) {
+            try {
+                Path temp = createTemp();
+                try {
+                    Files.write(temp, compress ? CompressionUtils.compress(content) : content);
+                    ObjectPaths.moveAtomically(temp, ObjectPaths.prepare(repositoryPath, hash));
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException e) {
+                throw new FileOperationException("Failed to store object: " + hash, e);
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String put(Path file) throws VCSException {
+        if (!Files.isRegularFile(file)) {
+            throw new FileOperationException.FileNotFoundException(file.toString());
+        }
+        try {
+            Path temp = createTemp();
+            try {
+                // Hashes and stores in the same pass, so each byte of the source is read once.
+                MessageDigest digest = HashUtils.newDigest();
+                try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest);
+                     OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                    if (compress) {
+                        CompressionUtils.compress(in, out, Files.size(file));
+                    } else {
+                        in.transferTo(out);
+                    }
+                }
+
+                String hash = HashUtils.bytesToHex(digest.digest());
+                if (!has(hash)) {
+                    ObjectPaths.moveAtomically(temp, ObjectPaths.prepare(repositoryPath, hash));
+                }
+                return hash;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to store file content: " + file, e);
+        }
+    }
+
+    @Override
+    public byte[] get(String hash) throws VCSException {
+        Path objectPath = ObjectPaths.locate(repositoryPath, hash);
+        try {
+            return CompressionUtils.decompress(Files.readAllBytes(objectPath), hash);
+        } catch (NoSuchFileException e) {
+            return packsContaining(hash).get(hash);
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to read object: " + hash, e);
+        }
+    }
+
+    @Override
+    public InputStream open(String hash) throws VCSException {
+        Path objectPath = ObjectPaths.locate(repositoryPath, hash);
+        try {
+            return CompressionUtils.decompress(Files.newInputStream(objectPath));
+        } catch (NoSuchFileException e) {
+            return packsContaining(hash).open(hash);
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to open object: " + hash, e);
+        }
+    }
+
+    @Override
+    public boolean has(String hash) {
+        if (ObjectPaths.exists(repositoryPath, hash)) {
+            return true;
+        }
+        try {
+            packsContaining(hash);
+            return true;
+        } catch (FileOperationException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Stream<String> list() throws VCSException {
+        PackedObjectStore packed = packs(false);
+        Stream<String> loose = listLoose();
+        return packed == null ? loose : Stream.concat(loose, packed.list()).distinct();
+    }
+
+    private Path createTemp() throws IOException {
+        Path objectsDir = ObjectPaths.objectsDir(repositoryPath);
+        Files.createDirectories(objectsDir);
+        return Files.createTempFile(objectsDir, "tmp-", ".obj");
+    }
+
+    public synchronized int repack() throws VCSException {
+        PackedObjectStore target = packs(true);
+        List<String> loose;
+        try (Stream<String> listed = listLoose()) {
+            loose = listed.toList();
+        }
+
+        target.importFrom(this);
+        try {
+            // Loose copies are only dropped once the pack holding them is durable.
+            for (String hash : loose) {
+                if (target.has(hash)) {
+                    Files.deleteIfExists(ObjectPaths.resolve(repositoryPath, hash));
+                    Files.deleteIfExists(ObjectPaths.objectsDir(repositoryPath).resolve(hash));
+                }
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to remove packed loose objects", e);
+        }
+        return loose.size();
+    }
+
+    public CompletableFuture<Integer> repackInBackground(Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return repack();
+            } catch (VCSException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    public String getRepositoryPath() {
+        return repositoryPath;
+    }
+
+    private Stream<String> listLoose() throws FileOperationException {
+        Path objectsDir = ObjectPaths.objectsDir(repositoryPath);
+        if (!Files.isDirectory(objectsDir)) {
+            return Stream.empty();
+        }
+        try {
+            return Files.walk(objectsDir, 3)
+                    .filter(Files::isRegularFile)
+                    .map(path -> path.getFileName().toString())
+                    .filter(ObjectPaths::isObjectHash);
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to list objects", e);
+        }
+    }
+
+    private PackedObjectStore packsContaining(String hash) throws FileOperationException {
+        PackedObjectStore packed = packs(false);
+        if (packed != null && (packed.has(hash) || (packed.refreshIfChanged() && packed.has(hash)))) {
+            return packed;
+        }
+        throw new FileOperationException("Object file not found: " + hash);
+    }
+
+    private synchronized PackedObjectStore packs(boolean create) throws FileOperationException {
+        if (packs == null && (create || Files.isDirectory(ObjectPaths.objectsDir(repositoryPath).resolve("pack")))) {
+            packs = new PackedObjectStore(repositoryPath);
+        }
+        return packs;
+    }
+}
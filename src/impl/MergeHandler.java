@@ -6,16 +6,21 @@ import utils.*;
 import exceptions.*;
 import java.util.*;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 public class MergeHandler implements Mergeable {
     private final VersionManager versionManager;
     private final List<ConflictInfo> currentConflicts;
     private final String repositoryPath;
+    private final ObjectStore objectStore;
 
     public MergeHandler(VersionManager versionManager) {
         this.versionManager = versionManager;
         this.currentConflicts = new ArrayList<>();
         this.repositoryPath = versionManager.getRepositoryPath();
+        this.objectStore = versionManager.getObjectStore();
     }
 
     @Override
@@ -28,11 +33,13 @@ public class MergeHandler implements Mergeable {
         }
 
         currentConflicts.clear();
+        SnapshotResolver resolver = versionManager.getSnapshotResolver();
+        Map<String, String> targetHashes = resolver.resolveView(targetVersion);
 
-        for (Map.Entry<String, String> entry : sourceInfo.getFileHashes().entrySet()) {
+        for (Map.Entry<String, String> entry : resolver.resolveView(sourceVersion).entrySet()) {
             String filePath = entry.getKey();
             String sourceHash = entry.getValue();
-            String targetHash = targetInfo.getFileHashes().get(filePath);
+            String targetHash = targetHashes.get(filePath);
 
             if (targetHash != null && !sourceHash.equals(targetHash)) {
                 List<String> sourceLines = readFileLines(sourceHash);
@@ -47,9 +54,76 @@ public class MergeHandler implements Mergeable {
         return currentConflicts.isEmpty();
     }
 
+    public MergePrediction predictMerge(String sourceVersion, String targetVersion) throws VCSException {
+        VersionInfo sourceInfo = versionManager.getVersion(sourceVersion);
+        VersionInfo targetInfo = versionManager.getVersion(targetVersion);
+
+        if (sourceInfo == null || targetInfo == null) {
+            throw new VersionException("Invalid version IDs");
+        }
+
+        SnapshotResolver resolver = versionManager.getSnapshotResolver();
+        return predict(sourceVersion, targetVersion, Collections.emptyMap(),
+                resolver.resolveView(sourceVersion), resolver.resolveView(targetVersion));
+    }
+
+    public MergePrediction predictMerge(String baseVersion, String sourceVersion, String targetVersion)
+            throws VCSException {
+        VersionInfo baseInfo = versionManager.getVersion(baseVersion);
+        VersionInfo sourceInfo = versionManager.getVersion(sourceVersion);
+        VersionInfo targetInfo = versionManager.getVersion(targetVersion);
+
+        if (baseInfo == null || sourceInfo == null || targetInfo == null) {
+            throw new VersionException("Invalid version IDs");
+        }
+
+        SnapshotResolver resolver = versionManager.getSnapshotResolver();
+        return predict(sourceVersion, targetVersion, resolver.resolveView(baseVersion),
+                resolver.resolveView(sourceVersion), resolver.resolveView(targetVersion));
+    }
+
+    private MergePrediction predict(String sourceVersion, String targetVersion, Map<String, String> baseHashes,
+                                    Map<String, String> sourceHashes, Map<String, String> targetHashes)
+            throws VCSException {
+        Set<String> allFiles = new HashSet<>(baseHashes.keySet());
+        allFiles.addAll(sourceHashes.keySet());
+        allFiles.addAll(targetHashes.keySet());
+
+        Map<String, MergePrediction.Outcome> outcomes = new HashMap<>();
+        for (String filePath : allFiles) {
+            String baseHash = baseHashes.get(filePath);
+            String sourceHash = sourceHashes.get(filePath);
+            String targetHash = targetHashes.get(filePath);
+
+            MergePrediction.Outcome outcome;
+            if (Objects.equals(sourceHash, targetHash)) {
+                outcome = Objects.equals(sourceHash, baseHash)
+                        ? MergePrediction.Outcome.UNCHANGED
+                        : MergePrediction.Outcome.IDENTICAL;
+            } else if (Objects.equals(sourceHash, baseHash)) {
+                outcome = MergePrediction.Outcome.TARGET_ONLY;
+            } else if (Objects.equals(targetHash, baseHash)) {
+                outcome = MergePrediction.Outcome.SOURCE_ONLY;
+            } else if (baseHash == null || sourceHash == null || targetHash == null) {
+                outcome = MergePrediction.Outcome.CONFLICT;
+            } else {
+                // Both sides edited an existing file: only now is content worth reading.
+                boolean overlap = ThreeWayMerge.changesOverlap(
+                        readFileLines(baseHash), readFileLines(sourceHash), readFileLines(targetHash));
+                outcome = overlap ? MergePrediction.Outcome.CONFLICT : MergePrediction.Outcome.AUTO_MERGEABLE;
+            }
+            outcomes.put(filePath, outcome);
+        }
+
+        return new MergePrediction(sourceVersion, targetVersion, outcomes);
+    }
+
     private List<String> readFileLines(String hash) throws VCSException {
-        File file = new File(repositoryPath + "/.vcs/objects/" + hash);
-        return FileUtils.readLines(file);
+        try (InputStream in = objectStore.open(hash)) {
+            return FileUtils.readLines(in);
+        } catch (IOException e) {
+            throw new FileOperationException.FileAccessException("Failed to read object: " + hash, e);
+        }
     }
 
     private List<ConflictInfo.ConflictBlock> findConflicts(List<String> sourceLines, List<String> targetLines) {
@@ -139,10 +213,7 @@ public class MergeHandler implements Mergeable {
         }
 
         String resolvedContent = applyResolution(conflict, resolution);
-        String newHash = HashUtils.calculateStringHash(resolvedContent);
-
-        File resolvedFile = new File(repositoryPath + "/.vcs/objects/" + newHash);
-        FileUtils.writeString(resolvedFile, resolvedContent);
+        objectStore.put(resolvedContent.getBytes(StandardCharsets.UTF_8));
 
         File originalFile = new File(filePath);
         FileUtils.writeString(originalFile, resolvedContent);
@@ -0,0 +1,121 @@
+package impl;
+
+import utils.FileUtils;
+import utils.HashUtils;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class PackIndex {
+    private static final int MAGIC = 0x56494458; // "VIDX"
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int FAN_OUT_OFFSET = 8;
+    private static final int HASHES_OFFSET = FAN_OUT_OFFSET + 256 * Integer.BYTES;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int offsetsOffset;
+
+    private PackIndex(MappedByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HASHES_OFFSET || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported pack index format");
+        }
+        this.buffer = buffer;
+        this.count = buffer.getInt(FAN_OUT_OFFSET + 255 * Integer.BYTES);
+        this.offsetsOffset = HASHES_OFFSET + count * HASH_LENGTH;
+        if (buffer.capacity() < offsetsOffset + (long) count * Long.BYTES) {
+            throw new IOException("Truncated pack index");
+        }
+    }
+
+    public static PackIndex open(Path idxFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(idxFile, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            return new PackIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static void write(Path idxFile, SortedMap<String, Long> offsets) throws IOException {
+        int[] fanOut = new int[256];
+        for (String hash : offsets.keySet()) {
+            fanOut[Integer.parseInt(hash.substring(0, 2), 16)]++;
+        }
+        for (int i = 1; i < fanOut.length; i++) {
+            fanOut[i] += fanOut[i - 1];
+        }
+
+        ByteArrayOutputStream bytes =
+                new ByteArrayOutputStream(HASHES_OFFSET + offsets.size() * (HASH_LENGTH + Long.BYTES));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (int entries : fanOut) {
+                out.writeInt(entries);
+            }
+            // Lower-case hex sorts in the same order as the raw bytes it encodes.
+            for (String hash : offsets.keySet()) {
+                out.write(HashUtils.hexToBytes(hash));
+            }
+            for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                out.writeLong(entry.getValue());
+            }
+        }
+        FileUtils.writeDurably(idxFile, bytes.toByteArray());
+    }
+
+    public long find(String hash) {
+        byte[] key = HashUtils.hexToBytes(hash);
+        if (key == null || key.length != HASH_LENGTH) {
+            return -1;
+        }
+
+        int first = key[0] & 0xff;
+        int low = first == 0 ? 0 : buffer.getInt(FAN_OUT_OFFSET + (first - 1) * Integer.BYTES);
+        int high = buffer.getInt(FAN_OUT_OFFSET + first * Integer.BYTES) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareAt(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return buffer.getLong(offsetsOffset + mid * Long.BYTES);
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(String hash) {
+        return find(hash) >= 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Stream<String> hashes() {
+        return IntStream.range(0, count).mapToObj(i -> {
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(HASHES_OFFSET + i * HASH_LENGTH, hash);
+            return HashUtils.bytesToHex(hash);
+        });
+    }
+
+    private int compareAt(int position, byte[] key) {
+        int base = HASHES_OFFSET + position * HASH_LENGTH;
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            int cmp = Integer.compare(buffer.get(base + i) & 0xff, key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,475 @@
+package impl;
+
+import interfaces.ObjectStore;
+import utils.*;
+import exceptions.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+// Objects are buffered in memory until the pending batch reaches the flush threshold, since a pack is
+// written in one pass with deltas chosen across the batch. New content from put(Path) is therefore
+// read whole, unlike LooseObjectStore, which streams each file into its own object.
+public class PackedObjectStore implements ObjectStore {
+    private static final long DEFAULT_FLUSH_THRESHOLD = 8L * 1024 * 1024;
+    private static final int PACK_MAGIC = 0x5650414B; // "VPAK"
+    private static final int PACK_VERSION = 2;
+    private static final int PACK_HEADER_LENGTH = 12;
+    private static final byte TYPE_FULL = 1;
+    private static final byte TYPE_DELTA = 2;
+    private static final int HASH_LENGTH = 32;
+    private static final int MAX_DELTA_DEPTH = 16;
+    private static final int DELTA_WINDOW = 10;
+    private static final int MIN_DELTA_SIZE = 256;
+    private static final long BASE_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final long MAX_PACK_BYTES = Integer.MAX_VALUE;
+
+    private final Path packDir;
+    private final long flushThreshold;
+    private final long maxPackBytes;
+    private final List<Pack> packs;
+    private final Map<String, byte[]> pending;
+    private final LruCache<String, byte[]> baseCache;
+    private final Deque<String> deltaWindow;
+    private final Map<String, Integer> windowDepths;
+    private long pendingBytes;
+    private FileTime loadedDirTime;
+
+    public PackedObjectStore(String repositoryPath) throws FileOperationException {
+        this(repositoryPath, DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    public PackedObjectStore(String repositoryPath, long flushThreshold) throws FileOperationException {
+        this(repositoryPath, flushThreshold, MAX_PACK_BYTES);
+    }
+
+    public PackedObjectStore(String repositoryPath, long flushThreshold, long maxPackBytes)
+            throws FileOperationException {
+        this.packDir = ObjectPaths.objectsDir(repositoryPath).resolve("pack");
+        this.flushThreshold = flushThreshold;
+        this.maxPackBytes = Math.min(maxPackBytes, MAX_PACK_BYTES);
+        this.packs = new CopyOnWriteArrayList<>();
+        this.pending = new LinkedHashMap<>();
+        this.baseCache = new LruCache<>(BASE_CACHE_BYTES, content -> content.length);
+        this.deltaWindow = new ArrayDeque<>();
+        this.windowDepths = new HashMap<>();
+        FileUtils.createDirectoryIfNotExists(packDir.toString());
+        refresh();
+    }
+
+    public final synchronized void refresh() throws FileOperationException {
+        Set<Path> loaded = new HashSet<>();
+        for (Pack pack : packs) {
+            loaded.add(pack.packFile());
+        }
+        try {
+            loadedDirTime = Files.getLastModifiedTime(packDir);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(packDir, "*.idx")) {
+                for (Path idxFile : stream) {
+                    Path packFile = packFileFor(idxFile);
+                    if (!loaded.contains(packFile)) {
+                        packs.add(openPack(packFile, idxFile));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to load pack indexes: " + packDir, e);
+        }
+    }
+
+    public boolean refreshIfChanged() {
+        try {
+            if (!Files.getLastModifiedTime(packDir).equals(loadedDirTime)) {
+                refresh();
+                return true;
+            }
+        } catch (IOException | FileOperationException e) {
+            System.err.println("Failed to refresh packs: " + e.getMessage());
+        }
+        return false;
+    }
+
+    private static Pack openPack(Path packFile, Path idxFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(packFile, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.capacity() < PACK_HEADER_LENGTH || data.getInt(0) != PACK_MAGIC
+                    || data.getInt(4) < 1 || data.getInt(4) > PACK_VERSION) {
+                throw new IOException("Unsupported pack format: " + packFile);
+            }
+            return new Pack(packFile, data, PackIndex.open(idxFile));
+        }
+    }
+
+    @Override
+    public String put(byte[] content) throws VCSException {
+        String hash = HashUtils.calculateBytesHash(content);
+        putVerified(hash, content.clone());
+        return hash;
+    }
+
+    @Override
+    public String put(Path file) throws VCSException {
+        if (!Files.isRegularFile(file)) {
+            throw new FileOperationException.FileNotFoundException(file.toString());
+        }
+        // Content that is already stored is recognized by a streaming hash and never read into memory.
+        String streamed = HashUtils.calculateFileHash(file.toFile());
+        if (has(streamed)) {
+            return streamed;
+        }
+        try {
+            byte[] content = Files.readAllBytes(file);
+            // Hashed again in case the file changed between the two reads.
+            String hash = HashUtils.calculateBytesHash(content);
+            putVerified(hash, content);
+            return hash;
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to store file content: " + file, e);
+        }
+    }
+
+    private void putVerified(String hash, byte[] content) throws VCSException {
+        if (PACK_HEADER_LENGTH + 5L + content.length > MAX_PACK_BYTES) {
+            throw new FileOperationException("Object too large to pack: " + hash);
+        }
+        boolean full;
+        synchronized (pending) {
+            if (pending.containsKey(hash) || findPacked(hash) != null) {
+                return;
+            }
+            pending.put(hash, content);
+            pendingBytes += content.length;
+            full = pendingBytes >= flushThreshold;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    @Override
+    public byte[] get(String hash) throws VCSException {
+        synchronized (pending) {
+            byte[] content = pending.get(hash);
+            if (content != null) {
+                return content.clone();
+            }
+        }
+        return reconstruct(hash).clone();
+    }
+
+    @Override
+    public InputStream open(String hash) throws VCSException {
+        synchronized (pending) {
+            byte[] content = pending.get(hash);
+            if (content != null) {
+                return new ByteArrayInputStream(content.clone());
+            }
+        }
+        PackedObject object = requirePacked(hash);
+        if (object.type() == TYPE_FULL) {
+            return new ByteBufferInputStream(object.fullContent());
+        }
+        return new ByteArrayInputStream(reconstruct(hash));
+    }
+
+    private byte[] reconstruct(String hash) throws FileOperationException {
+        byte[] cached = baseCache.get(hash);
+        if (cached != null) {
+            return cached;
+        }
+
+        PackedObject object = requirePacked(hash);
+        if (object.type() == TYPE_FULL) {
+            ByteBuffer slice = object.fullContent();
+            byte[] content = new byte[slice.remaining()];
+            slice.get(content);
+            return content;
+        }
+
+        // Depth is bounded when the delta is written, so the recursion is too.
+        byte[] content = DeltaCodec.apply(reconstruct(object.baseHash()), object.delta());
+        baseCache.put(hash, content);
+        return content;
+    }
+
+    private int chainDepth(String hash) throws FileOperationException {
+        int depth = 0;
+        PackedObject object = requirePacked(hash);
+        while (object.type() == TYPE_DELTA) {
+            depth++;
+            object = requirePacked(object.baseHash());
+        }
+        return depth;
+    }
+
+    private PackedObject requirePacked(String hash) throws FileOperationException {
+        PackedObject object = findPacked(hash);
+        if (object == null) {
+            throw new FileOperationException("Object file not found: " + hash);
+        }
+        byte type = object.type();
+        if (type != TYPE_FULL && type != TYPE_DELTA) {
+            throw new FileOperationException.FileCorruptedException(object.pack().packFile() + "@" + object.offset());
+        }
+        return object;
+    }
+
+    private PackedObject findPacked(String hash) {
+        for (Pack pack : packs) {
+            long offset = pack.index().find(hash);
+            if (offset >= 0) {
+                return new PackedObject(pack, offset);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean has(String hash) {
+        synchronized (pending) {
+            if (pending.containsKey(hash)) {
+                return true;
+            }
+        }
+        return findPacked(hash) != null;
+    }
+
+    @Override
+    public Stream<String> list() {
+        Set<String> hashes = new HashSet<>();
+        for (Pack pack : packs) {
+            pack.index().hashes().forEach(hashes::add);
+        }
+        synchronized (pending) {
+            hashes.addAll(pending.keySet());
+        }
+        return hashes.stream();
+    }
+
+    public int importFrom(ObjectStore source) throws VCSException {
+        List<String> hashes;
+        try (Stream<String> listed = source.list()) {
+            hashes = listed.filter(hash -> !has(hash)).toList();
+        }
+        for (String hash : hashes) {
+            putVerified(hash, source.get(hash));
+        }
+        flush();
+        return hashes.size();
+    }
+
+    // Objects are split across packs of at most maxPackBytes, so every offset in a pack fits the int
+    // positions of its single mapped buffer.
+    @Override
+    public synchronized void flush() throws VCSException {
+        Map<String, byte[]> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new LinkedHashMap<>(pending);
+        }
+
+        Map<String, byte[]> chunk = new LinkedHashMap<>();
+        long chunkBytes = PACK_HEADER_LENGTH;
+        for (Map.Entry<String, byte[]> entry : batch.entrySet()) {
+            // A delta entry is only chosen when it is smaller than the full one, so this is an upper bound.
+            long entryBytes = 5L + entry.getValue().length;
+            if (!chunk.isEmpty() && chunkBytes + entryBytes > maxPackBytes) {
+                writePack(chunk, batch);
+                chunk.clear();
+                chunkBytes = PACK_HEADER_LENGTH;
+            }
+            chunk.put(entry.getKey(), entry.getValue());
+            chunkBytes += entryBytes;
+        }
+        writePack(chunk, batch);
+    }
+
+    private void writePack(Map<String, byte[]> chunk, Map<String, byte[]> batch) throws VCSException {
+        String packName = "pack-" + HashUtils.calculateStringHash(String.join("", chunk.keySet()));
+        Path packFile = packDir.resolve(packName + ".pack");
+        Path idxFile = packDir.resolve(packName + ".idx");
+        SortedMap<String, Long> offsets = new TreeMap<>();
+        try {
+            Path packTemp = Files.createTempFile(packDir, packName, ".tmp");
+            try (FileChannel channel = FileChannel.open(packTemp, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(
+                         new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+                out.writeInt(PACK_MAGIC);
+                out.writeInt(PACK_VERSION);
+                out.writeInt(chunk.size());
+                long offset = PACK_HEADER_LENGTH;
+                for (Map.Entry<String, byte[]> entry : chunk.entrySet()) {
+                    String hash = entry.getKey();
+                    byte[] content = entry.getValue();
+                    offsets.put(hash, offset);
+
+                    DeltaChoice choice = chooseDelta(content, batch);
+                    if (choice == null) {
+                        out.writeByte(TYPE_FULL);
+                        out.writeInt(content.length);
+                        out.write(content);
+                        offset += 5 + content.length;
+                    } else {
+                        out.writeByte(TYPE_DELTA);
+                        out.writeInt(choice.delta().length);
+                        out.write(HashUtils.hexToBytes(choice.baseHash()));
+                        out.write(choice.delta());
+                        offset += 5 + HASH_LENGTH + choice.delta().length;
+                    }
+                    remember(hash, choice == null ? 0 : choice.depth());
+                }
+                out.flush();
+                channel.force(true);
+            }
+
+            Path idxTemp = Files.createTempFile(packDir, packName, ".tmp");
+            PackIndex.write(idxTemp, offsets);
+
+            // Both files are forced before they are renamed. The pack must be in place, durably, before its
+            // index makes it visible to readers, and the batch only counts as stored once the index is too.
+            Files.move(packTemp, packFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileUtils.syncDirectory(packDir);
+            Files.move(idxTemp, idxFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileUtils.syncDirectory(packDir);
+            packs.add(openPack(packFile, idxFile));
+        } catch (IOException e) {
+            // Nothing from this pack is durable, so it must not be used as a delta base.
+            deltaWindow.clear();
+            windowDepths.clear();
+            throw new FileOperationException("Failed to write pack: " + packName, e);
+        }
+
+        synchronized (pending) {
+            for (String hash : chunk.keySet()) {
+                byte[] content = pending.remove(hash);
+                if (content != null) {
+                    pendingBytes -= content.length;
+                }
+            }
+        }
+    }
+
+    private DeltaChoice chooseDelta(byte[] content, Map<String, byte[]> batch) {
+        if (content.length < MIN_DELTA_SIZE) {
+            return null;
+        }
+
+        DeltaChoice best = null;
+        Iterator<String> candidates = deltaWindow.descendingIterator();
+        while (candidates.hasNext()) {
+            String candidate = candidates.next();
+            int depth = windowDepths.getOrDefault(candidate, MAX_DELTA_DEPTH);
+            if (depth >= MAX_DELTA_DEPTH) {
+                continue;
+            }
+            byte[] base = batch.get(candidate);
+            if (base == null) {
+                try {
+                    base = reconstruct(candidate);
+                } catch (FileOperationException e) {
+                    continue;
+                }
+            }
+            // Only objects of a similar size are worth diffing against.
+            if (base.length > 2L * content.length || content.length > 2L * base.length) {
+                continue;
+            }
+
+            byte[] delta = DeltaCodec.encode(base, content);
+            if (delta.length + HASH_LENGTH < content.length / 2
+                    && (best == null || delta.length < best.delta().length)) {
+                best = new DeltaChoice(candidate, delta, depth + 1);
+            }
+        }
+        return best;
+    }
+
+    private void remember(String hash, int depth) {
+        if (windowDepths.put(hash, depth) == null) {
+            deltaWindow.addLast(hash);
+        }
+        while (deltaWindow.size() > DELTA_WINDOW) {
+            windowDepths.remove(deltaWindow.removeFirst());
+        }
+    }
+
+    public int getDeltaChainDepth(String hash) throws FileOperationException {
+        return chainDepth(hash);
+    }
+
+    public int getPackCount() {
+        return packs.size();
+    }
+
+    private static Path packFileFor(Path idxFile) {
+        String name = idxFile.getFileName().toString();
+        return idxFile.resolveSibling(name.substring(0, name.length() - ".idx".length()) + ".pack");
+    }
+
+    private record Pack(Path packFile, MappedByteBuffer data, PackIndex index) {
+    }
+
+    private record PackedObject(Pack pack, long offset) {
+        byte type() {
+            return pack.data().get((int) offset);
+        }
+
+        ByteBuffer fullContent() {
+            int length = pack.data().getInt((int) offset + 1);
+            return pack.data().slice((int) offset + 5, length);
+        }
+
+        String baseHash() {
+            byte[] hash = new byte[HASH_LENGTH];
+            pack.data().get((int) offset + 5, hash);
+            return HashUtils.bytesToHex(hash);
+        }
+
+        byte[] delta() {
+            int length = pack.data().getInt((int) offset + 1);
+            byte[] delta = new byte[length];
+            pack.data().get((int) offset + 5 + HASH_LENGTH, delta);
+            return delta;
+        }
+    }
+
+    private record DeltaChoice(String baseHash, byte[] delta, int depth) {
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
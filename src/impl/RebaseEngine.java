@@ -0,0 +1,190 @@
+package impl;
+
+import interfaces.ObjectStore;
+import model.*;
+import utils.*;
+import exceptions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class RebaseEngine {
+    private final VersionManager versionManager;
+    private final ObjectStore objectStore;
+
+    public RebaseEngine(VersionManager versionManager) {
+        this.versionManager = versionManager;
+        this.objectStore = versionManager.getObjectStore();
+    }
+
+    public String cherryPick(String versionId, String ontoVersion) throws VCSException {
+        return rebase(List.of(versionId), ontoVersion).getFirst();
+    }
+
+    public List<String> rebase(List<String> versionIds, String ontoVersion) throws VCSException {
+        VersionInfo onto = versionManager.getVersion(ontoVersion);
+        if (onto == null) {
+            throw new VersionException.VersionNotFoundException(ontoVersion);
+        }
+
+        Map<String, VersionInfo> parents = parentIndex();
+        SnapshotResolver resolver = versionManager.getSnapshotResolver();
+        PersistentHashMap<String, String> snapshot = resolver.resolveView(ontoVersion);
+
+        // Every step is applied in memory first, so a conflict anywhere in the stack leaves no versions behind.
+        List<Step> steps = new ArrayList<>();
+        for (String versionId : versionIds) {
+            VersionInfo version = versionManager.getVersion(versionId);
+            if (version == null) {
+                throw new VersionException.VersionNotFoundException(versionId);
+            }
+            VersionInfo parent = parents.get(versionId);
+            Map<String, String> parentHashes = parent != null
+                    ? resolver.resolveView(parent.getVersionId()) : Collections.emptyMap();
+
+            // A null hash is a file the version deleted.
+            Map<String, String> changes = new HashMap<>();
+            if (parent != null) {
+                for (SnapshotTree.Change change : resolver.diff(parent.getVersionId(), versionId)) {
+                    changes.put(change.path(), change.newHash());
+                }
+            } else {
+                changes.putAll(resolver.resolveView(versionId));
+            }
+
+            Map<String, String> applied = applyChanges(versionId, ontoVersion, parentHashes, snapshot, changes);
+            // Each rebased version shares everything it did not touch with the one before it.
+            snapshot = SnapshotResolver.apply(snapshot, applied);
+            steps.add(new Step(version.getMessage(), applied, snapshot));
+        }
+
+        // On top of the newest version only the applied changes need recording; onto an older one the
+        // first step has to carry its whole snapshot.
+        boolean onHead = ontoVersion.equals(versionManager.getCurrentVersion().getVersionId());
+        List<String> created = new ArrayList<>();
+        for (Step step : steps) {
+            created.add(onHead || !created.isEmpty()
+                    ? versionManager.createDeltaVersion(step.message(), step.applied())
+                    : versionManager.createVersion(step.message(), step.snapshot()));
+        }
+        return created;
+    }
+
+    private Map<String, String> applyChanges(String versionId, String ontoVersion, Map<String, String> parentHashes,
+                                             Map<String, String> snapshot, Map<String, String> changes)
+            throws VCSException {
+        List<FileResult> results = changes.entrySet().parallelStream()
+                .map(entry -> applyFile(entry.getKey(), parentHashes.get(entry.getKey()),
+                        snapshot.get(entry.getKey()), entry.getValue()))
+                .toList();
+
+        Map<String, String> applied = new HashMap<>();
+        List<ConflictInfo> conflicts = new ArrayList<>();
+        for (FileResult result : results) {
+            if (result.error() != null) {
+                throw result.error();
+            }
+            if (result.conflict() != null) {
+                conflicts.add(result.conflict());
+            } else {
+                applied.put(result.filePath(), result.hash());
+            }
+        }
+
+        if (!conflicts.isEmpty()) {
+            throw new MergeConflictException("Cannot apply version " + versionId + " onto " + ontoVersion,
+                    versionId, ontoVersion, conflicts);
+        }
+        return applied;
+    }
+
+    private FileResult applyFile(String filePath, String baseHash, String ourHash, String theirHash) {
+        // Hash comparisons settle most files without reading any content.
+        if (Objects.equals(ourHash, baseHash) || Objects.equals(ourHash, theirHash)) {
+            return new FileResult(filePath, theirHash, null, null);
+        }
+
+        try {
+            if (ourHash == null || theirHash == null) {
+                // One side deleted the file the other changed; the block holds the surviving content in full.
+                List<String> lines = readText(ourHash != null ? ourHash : theirHash).lines();
+                String content = String.join("\n", lines);
+                ConflictInfo.ConflictBlock block = new ConflictInfo.ConflictBlock(0, Math.max(0, lines.size() - 1),
+                        ourHash != null ? content : "", theirHash != null ? content : "");
+                return new FileResult(filePath, null, new ConflictInfo(filePath, theirHash, ourHash, List.of(block)),
+                        null);
+            }
+            // Without a base both sides added the file; merging against an empty base shows where they differ.
+            Text base = baseHash != null ? readText(baseHash) : null;
+            Text ours = readText(ourHash);
+            Text theirs = readText(theirHash);
+            ThreeWayMerge.Result result = ThreeWayMerge.merge(
+                    base != null ? base.lines() : List.of(), ours.lines(), theirs.lines());
+            if (!result.isClean()) {
+                return new FileResult(filePath, null,
+                        new ConflictInfo(filePath, theirHash, ourHash, result.conflicts()), null);
+            }
+            // Line endings and the final newline are merged like the lines: ours, unless theirs changed them.
+            boolean theirsChangedFormat = base != null && (!theirs.separator().equals(base.separator())
+                    || theirs.trailingNewline() != base.trailingNewline());
+            Text format = theirsChangedFormat ? theirs : ours;
+            return new FileResult(filePath, storeText(new Text(result.lines(), format.separator(),
+                    format.trailingNewline())), null, null);
+        } catch (VCSException e) {
+            return new FileResult(filePath, null, null, e);
+        }
+    }
+
+    private Map<String, VersionInfo> parentIndex() {
+        Map<String, VersionInfo> parents = new HashMap<>();
+        VersionInfo previous = null;
+        for (VersionInfo version : versionManager.getVersionHistory()) {
+            if (previous != null) {
+                parents.put(version.getVersionId(), previous);
+            }
+            previous = version;
+        }
+        return parents;
+    }
+
+    private Text readText(String hash) throws VCSException {
+        byte[] content;
+        List<String> lines;
+        try (InputStream in = objectStore.open(hash)) {
+            content = in.readAllBytes();
+            lines = FileUtils.readLines(new ByteArrayInputStream(content));
+        } catch (IOException e) {
+            throw new FileOperationException.FileAccessException("Failed to read object: " + hash, e);
+        }
+        // The first line break decides the separator for the whole file.
+        String separator = "\n";
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') {
+                separator = i > 0 && content[i - 1] == '\r' ? "\r\n" : "\n";
+                break;
+            }
+        }
+        return new Text(lines, separator, content.length > 0 && content[content.length - 1] == '\n');
+    }
+
+    private String storeText(Text text) throws VCSException {
+        String content = String.join(text.separator(), text.lines());
+        if (text.trailingNewline() && !text.lines().isEmpty()) {
+            content += text.separator();
+        }
+        return objectStore.put(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Lines without their terminators, with the separator and final newline needed to write them back.
+    private record Text(List<String> lines, String separator, boolean trailingNewline) {
+    }
+
+    private record FileResult(String filePath, String hash, ConflictInfo conflict, VCSException error) {
+    }
+
+    private record Step(String message, Map<String, String> applied, PersistentHashMap<String, String> snapshot) {
+    }
+}
@@ -0,0 +1,170 @@
+package impl;
+
+import model.VersionInfo;
+import utils.LruCache;
+import utils.PersistentHashMap;
+import exceptions.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// A delta version only records what changed, so its full snapshot is the changes replayed on top
+// of the last full version before it. Every CHECKPOINT_INTERVAL versions the replayed snapshot is
+// saved as a tree root, so resolving any version replays at most one interval of changes on top of
+// the nearest checkpoint; each step only rewrites the tree directories it touches.
+public class SnapshotResolver {
+    private static final int CHECKPOINT_INTERVAL = 64;
+    private static final int MAX_CACHED_ROOTS = 65536;
+    private static final long MAX_CACHED_FILE_ENTRIES = 1 << 20;
+    private static final String CHECKPOINT_FILE = "snapshots";
+
+    private final VersionManager versionManager;
+    private final SnapshotTree trees;
+    private final Path checkpointFile;
+    private final Map<String, String> checkpoints;
+    private final LruCache<String, String> roots;
+    private final LruCache<String, PersistentHashMap<String, String>> snapshots;
+    private boolean loaded;
+
+    SnapshotResolver(VersionManager versionManager, SnapshotTree trees) {
+        this.versionManager = versionManager;
+        this.trees = trees;
+        this.checkpointFile = Paths.get(versionManager.getRepositoryPath(), ".vcs", CHECKPOINT_FILE);
+        this.checkpoints = new HashMap<>();
+        this.roots = new LruCache<>(MAX_CACHED_ROOTS);
+        this.snapshots = new LruCache<>(MAX_CACHED_FILE_ENTRIES, snapshot -> snapshot.size() + 1L);
+    }
+
+    // Returns a copy the caller may modify.
+    public Map<String, String> resolve(String versionId) throws VCSException {
+        return new HashMap<>(resolveView(versionId));
+    }
+
+    public synchronized PersistentHashMap<String, String> resolveView(String versionId) throws VCSException {
+        PersistentHashMap<String, String> snapshot = snapshots.get(versionId);
+        if (snapshot == null) {
+            snapshot = materialize(versionId);
+            snapshots.put(versionId, snapshot);
+        }
+        return snapshot;
+    }
+
+    // A delta version whose parent is cached shares every unchanged node with the parent's snapshot.
+    private PersistentHashMap<String, String> materialize(String versionId) throws VCSException {
+        int index = versionManager.indexOf(versionId);
+        if (index > 0) {
+            VersionInfo version = versionManager.versionAt(index);
+            PersistentHashMap<String, String> parent = version.isDelta()
+                    ? snapshots.get(versionManager.versionAt(index - 1).getVersionId()) : null;
+            if (parent != null) {
+                return apply(parent, version.getFileHashesView());
+            }
+        }
+        return PersistentHashMap.copyOf(trees.read(resolveTree(versionId)));
+    }
+
+    public synchronized String resolveTree(String versionId) throws VCSException {
+        String cached = roots.get(versionId);
+        if (cached != null) {
+            return cached;
+        }
+        int index = versionManager.indexOf(versionId);
+        if (index < 0) {
+            throw new VersionException.VersionNotFoundException(versionId);
+        }
+        loadCheckpoints();
+
+        // Walk back to the nearest version whose snapshot is already known, then replay forward.
+        int start = index;
+        String root = null;
+        while (start >= 0 && root == null) {
+            VersionInfo candidate = versionManager.versionAt(start);
+            root = roots.get(candidate.getVersionId());
+            if (root == null) {
+                root = checkpoints.get(candidate.getVersionId());
+            }
+            if (root == null && !candidate.isDelta()) {
+                root = ownTree(candidate);
+                roots.put(candidate.getVersionId(), root);
+            }
+            if (root == null) {
+                start--;
+            }
+        }
+        if (root == null) {
+            root = trees.write(Map.of());
+        }
+
+        for (int i = start + 1; i <= index; i++) {
+            VersionInfo version = versionManager.versionAt(i);
+            root = version.isDelta() ? trees.update(root, version.getFileHashesView()) : ownTree(version);
+            roots.put(version.getVersionId(), root);
+            if ((i + 1) % CHECKPOINT_INTERVAL == 0 && !checkpoints.containsKey(version.getVersionId())) {
+                saveCheckpoint(version.getVersionId(), root);
+            }
+        }
+        return root;
+    }
+
+    // Applies a delta's changes to a snapshot; a null hash removes the path.
+    static PersistentHashMap<String, String> apply(PersistentHashMap<String, String> snapshot,
+                                                   Map<String, String> changes) {
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            snapshot = change.getValue() != null
+                    ? snapshot.plus(change.getKey(), change.getValue()) : snapshot.minus(change.getKey());
+        }
+        return snapshot;
+    }
+
+    private String ownTree(VersionInfo version) throws VCSException {
+        return version.getTreeHash() != null ? version.getTreeHash() : trees.write(version.getFileHashesView());
+    }
+
+    // Compares the full snapshots of two versions, skipping every subtree they share.
+    public synchronized List<SnapshotTree.Change> diff(String oldVersionId, String newVersionId) throws VCSException {
+        return trees.diff(resolveTree(oldVersionId), resolveTree(newVersionId));
+    }
+
+    public synchronized int getCheckpointCount() throws FileOperationException {
+        loadCheckpoints();
+        return checkpoints.size();
+    }
+
+    private void loadCheckpoints() throws FileOperationException {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.isRegularFile(checkpointFile)) {
+            return;
+        }
+        try {
+            String content = Files.readString(checkpointFile, StandardCharsets.UTF_8);
+            // Only complete lines count; a torn final append is cut off so later appends start on a fresh line.
+            int end = content.lastIndexOf('\n');
+            if (end + 1 < content.length()) {
+                Files.writeString(checkpointFile, content.substring(0, end + 1), StandardCharsets.UTF_8);
+            }
+            for (String line : content.substring(0, end + 1).split("\n")) {
+                int space = line.indexOf(' ');
+                if (space > 0) {
+                    checkpoints.put(line.substring(0, space), line.substring(space + 1));
+                }
+            }
+        } catch (IOException e) {
+            throw new FileOperationException.FileAccessException("Failed to read snapshot checkpoints: " + checkpointFile);
+        }
+    }
+
+    private void saveCheckpoint(String versionId, String root) {
+        checkpoints.put(versionId, root);
+        try {
+            Files.createDirectories(checkpointFile.getParent());
+            Files.writeString(checkpointFile, versionId + " " + root + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // Checkpoints only save work; the snapshot is rebuilt by replay if this one is lost.
+        }
+    }
+}
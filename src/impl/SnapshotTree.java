@@ -0,0 +1,263 @@
+package impl;
+
+import interfaces.ObjectStore;
+import utils.*;
+import exceptions.*;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Stores a snapshot as content-addressed directory objects: each tree lists its entries sorted by
+// name, and a directory whose contents did not change hashes to the same object in every version.
+// Comparing two snapshots therefore only descends into subtrees whose hashes differ.
+public class SnapshotTree {
+    private static final byte[] MAGIC = {'V', 'T', 'R', 'E'};
+    private static final int FORMAT_VERSION = 1;
+    private static final int KIND_FILE = 0;
+    private static final int KIND_TREE = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int HASH_TEXT = 0;
+    private static final int HASH_RAW = 1;
+    private static final long MAX_CACHED_ENTRIES = 1 << 20;
+
+    private final ObjectStore objectStore;
+    private final LruCache<String, List<Entry>> trees;
+
+    public SnapshotTree(ObjectStore objectStore) {
+        this.objectStore = objectStore;
+        this.trees = new LruCache<>(MAX_CACHED_ENTRIES, entries -> entries.size() + 1L);
+    }
+
+    public record Change(String path, String oldHash, String newHash) {
+    }
+
+    private record Entry(String name, boolean tree, String hash) {
+    }
+
+    // Paths are split on '/', keeping empty segments, so every key round-trips exactly.
+    public String write(Map<String, String> fileHashes) throws VCSException {
+        return update(null, fileHashes);
+    }
+
+    // Applies changes on top of an existing tree, rewriting only the directories on the changed paths.
+    // A null hash removes the path.
+    public String update(String rootHash, Map<String, String> changes) throws VCSException {
+        if (rootHash != null && changes.isEmpty()) {
+            return rootHash;
+        }
+        Node root = new Node();
+        for (Map.Entry<String, String> file : changes.entrySet()) {
+            String path = file.getKey();
+            Node node = root;
+            int start = 0;
+            for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', start)) {
+                node = node.directories.computeIfAbsent(path.substring(start, slash), name -> new Node());
+                start = slash + 1;
+            }
+            node.files.put(path.substring(start), file.getValue());
+        }
+        return update(rootHash, root, true);
+    }
+
+    public Map<String, String> read(String rootHash) throws VCSException {
+        Map<String, String> fileHashes = new HashMap<>();
+        read(rootHash, "", fileHashes);
+        return fileHashes;
+    }
+
+    public boolean isEmpty(String rootHash) throws VCSException {
+        return entries(rootHash).isEmpty();
+    }
+
+    public List<Change> diff(String oldRoot, String newRoot) throws VCSException {
+        List<Change> changes = new ArrayList<>();
+        diff(oldRoot, newRoot, "", changes);
+        return changes;
+    }
+
+    private String update(String treeHash, Node changes, boolean root) throws VCSException {
+        Map<String, String> files = new HashMap<>();
+        Map<String, String> directories = new HashMap<>();
+        if (treeHash != null) {
+            for (Entry entry : entries(treeHash)) {
+                (entry.tree() ? directories : files).put(entry.name(), entry.hash());
+            }
+        }
+        for (Map.Entry<String, String> file : changes.files.entrySet()) {
+            if (file.getValue() != null) {
+                files.put(file.getKey(), file.getValue());
+            } else {
+                files.remove(file.getKey());
+            }
+        }
+        for (Map.Entry<String, Node> directory : changes.directories.entrySet()) {
+            String updated = update(directories.get(directory.getKey()), directory.getValue(), false);
+            if (updated != null) {
+                directories.put(directory.getKey(), updated);
+            } else {
+                directories.remove(directory.getKey());
+            }
+        }
+        // A subdirectory left empty by removals disappears; the root always exists.
+        if (!root && files.isEmpty() && directories.isEmpty()) {
+            return null;
+        }
+
+        List<Entry> entries = new ArrayList<>(files.size() + directories.size());
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            entries.add(new Entry(file.getKey(), false, file.getValue()));
+        }
+        for (Map.Entry<String, String> directory : directories.entrySet()) {
+            entries.add(new Entry(directory.getKey(), true, directory.getValue()));
+        }
+        entries.sort(Comparator.comparing(Entry::name).thenComparing(Entry::tree));
+
+        byte[] encoded = encode(entries);
+        String hash = HashUtils.calculateBytesHash(encoded);
+        // Unchanged directories encode to an object that is already stored.
+        if (!objectStore.has(hash)) {
+            hash = objectStore.put(encoded);
+        }
+        trees.put(hash, entries);
+        return hash;
+    }
+
+    private void read(String treeHash, String prefix, Map<String, String> fileHashes) throws VCSException {
+        for (Entry entry : entries(treeHash)) {
+            if (entry.tree()) {
+                read(entry.hash(), prefix + entry.name() + "/", fileHashes);
+            } else {
+                fileHashes.put(prefix + entry.name(), entry.hash());
+            }
+        }
+    }
+
+    // Walks both sorted entry lists together and skips every pair of entries with equal hashes.
+    private void diff(String oldTree, String newTree, String prefix, List<Change> changes) throws VCSException {
+        if (Objects.equals(oldTree, newTree)) {
+            return;
+        }
+        List<Entry> oldEntries = oldTree != null ? entries(oldTree) : List.of();
+        List<Entry> newEntries = newTree != null ? entries(newTree) : List.of();
+        Comparator<Entry> order = Comparator.comparing(Entry::name).thenComparing(Entry::tree);
+        int i = 0;
+        int j = 0;
+        while (i < oldEntries.size() || j < newEntries.size()) {
+            Entry oldEntry = i < oldEntries.size() ? oldEntries.get(i) : null;
+            Entry newEntry = j < newEntries.size() ? newEntries.get(j) : null;
+            int compare = oldEntry == null ? 1 : newEntry == null ? -1 : order.compare(oldEntry, newEntry);
+            if (compare < 0) {
+                removed(oldEntry, prefix, changes);
+                i++;
+            } else if (compare > 0) {
+                added(newEntry, prefix, changes);
+                j++;
+            } else {
+                if (!oldEntry.hash().equals(newEntry.hash())) {
+                    if (oldEntry.tree()) {
+                        diff(oldEntry.hash(), newEntry.hash(), prefix + oldEntry.name() + "/", changes);
+                    } else {
+                        changes.add(new Change(prefix + oldEntry.name(), oldEntry.hash(), newEntry.hash()));
+                    }
+                }
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private void removed(Entry entry, String prefix, List<Change> changes) throws VCSException {
+        if (entry.tree()) {
+            diff(entry.hash(), null, prefix + entry.name() + "/", changes);
+        } else {
+            changes.add(new Change(prefix + entry.name(), entry.hash(), null));
+        }
+    }
+
+    private void added(Entry entry, String prefix, List<Change> changes) throws VCSException {
+        if (entry.tree()) {
+            diff(null, entry.hash(), prefix + entry.name() + "/", changes);
+        } else {
+            changes.add(new Change(prefix + entry.name(), null, entry.hash()));
+        }
+    }
+
+    private List<Entry> entries(String treeHash) throws VCSException {
+        List<Entry> entries = trees.get(treeHash);
+        if (entries == null) {
+            entries = decode(treeHash, objectStore.get(treeHash));
+            trees.put(treeHash, entries);
+        }
+        return entries;
+    }
+
+    private static byte[] encode(List<Entry> entries) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + entries.size() * 48);
+        out.writeBytes(MAGIC);
+        out.write(FORMAT_VERSION);
+        DeltaCodec.writeVarint(out, entries.size());
+        for (Entry entry : entries) {
+            out.write(entry.tree() ? KIND_TREE : KIND_FILE);
+            writeBytes(out, entry.name().getBytes(StandardCharsets.UTF_8));
+            byte[] raw = HashUtils.hexToBytes(entry.hash());
+            if (raw != null && raw.length == HASH_LENGTH && HashUtils.bytesToHex(raw).equals(entry.hash())) {
+                out.write(HASH_RAW);
+                out.write(raw, 0, raw.length);
+            } else {
+                out.write(HASH_TEXT);
+                writeBytes(out, entry.hash().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Entry> decode(String treeHash, byte[] data) throws FileOperationException {
+        if (data.length < MAGIC.length + 1 || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)
+                || data[MAGIC.length] != FORMAT_VERSION) {
+            throw new FileOperationException.FileCorruptedException("Not a tree object: " + treeHash);
+        }
+        int[] cursor = {MAGIC.length + 1};
+        try {
+            int count = (int) DeltaCodec.readVarint(data, cursor);
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                boolean tree = data[cursor[0]++] == KIND_TREE;
+                String name = readString(data, cursor);
+                String hash;
+                if (data[cursor[0]++] == HASH_RAW) {
+                    if (cursor[0] + HASH_LENGTH > data.length) {
+                        throw new IndexOutOfBoundsException("truncated hash");
+                    }
+                    hash = HashUtils.bytesToHex(Arrays.copyOfRange(data, cursor[0], cursor[0] + HASH_LENGTH));
+                    cursor[0] += HASH_LENGTH;
+                } else {
+                    hash = readString(data, cursor);
+                }
+                entries.add(new Entry(name, tree, hash));
+            }
+            if (cursor[0] != data.length) {
+                throw new FileOperationException.FileCorruptedException("Trailing data in tree: " + treeHash);
+            }
+            return List.copyOf(entries);
+        } catch (IndexOutOfBoundsException e) {
+            throw new FileOperationException.FileCorruptedException("Malformed tree object: " + treeHash);
+        }
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        DeltaCodec.writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(byte[] data, int[] cursor) {
+        int length = (int) DeltaCodec.readVarint(data, cursor);
+        String value = new String(data, cursor[0], length, StandardCharsets.UTF_8);
+        cursor[0] += length;
+        return value;
+    }
+
+    private static class Node {
+        private final Map<String, String> files = new HashMap<>();
+        private final Map<String, Node> directories = new HashMap<>();
+    }
+}
@@ -0,0 +1,116 @@
+package impl;
+
+import utils.*;
+import exceptions.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// An in-memory cache; its entries are persisted by the owner, inside the tracker index.
+public class StatCache {
+    private static final long GRANULARITY_MILLIS = 2000;
+
+    private final Map<String, Stat> entries;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    public StatCache() {
+        this.entries = new ConcurrentHashMap<>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    public String hash(Path file) throws VCSException {
+        BasicFileAttributes attributes = stat(file);
+        String cached = cachedHash(file, attributes);
+        if (cached != null) {
+            return cached;
+        }
+        String hash = HashUtils.calculateFileHash(file.toFile());
+        record(file, attributes, hash);
+        return hash;
+    }
+
+    // Returns the remembered hash only when the stat data still matches and the entry is not racily clean.
+    public String cachedHash(Path file, BasicFileAttributes attributes) {
+        Stat entry = entries.get(file.toString());
+        if (entry != null && entry.matches(attributes) && !entry.isRacy(GRANULARITY_MILLIS)) {
+            hits.incrementAndGet();
+            return entry.hash();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    // Attributes must be read before the content was hashed, so a concurrent edit shows up as a mismatch.
+    public void record(Path file, BasicFileAttributes attributes, String hash) {
+        entries.put(file.toString(), new Stat(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                fileKey(attributes), hash, System.currentTimeMillis()));
+    }
+
+    public Stat getStat(String filePath) {
+        return entries.get(filePath);
+    }
+
+    public void putStat(String filePath, Stat stat) {
+        entries.put(filePath, stat);
+    }
+
+    public static BasicFileAttributes stat(Path file) throws FileOperationException {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new FileOperationException.FileNotFoundException(file.toString());
+        } catch (IOException e) {
+            throw new FileOperationException.FileAccessException("Failed to stat file: " + file);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static String fileKey(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key == null ? "" : key.toString();
+    }
+
+    public record Stat(long size, long modifiedMillis, String fileKey, String hash, long verifiedMillis) {
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeLong(size);
+            out.writeLong(modifiedMillis);
+            out.writeUTF(fileKey);
+            out.writeUTF(hash);
+            out.writeLong(verifiedMillis);
+        }
+
+        public static Stat readFrom(DataInput in) throws IOException {
+            return new Stat(in.readLong(), in.readLong(), in.readUTF(), in.readUTF(), in.readLong());
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && modifiedMillis == attributes.lastModifiedTime().toMillis()
+                    && fileKey.equals(StatCache.fileKey(attributes));
+        }
+
+        // A file written within the timestamp granularity of being hashed could change again
+        // without its mtime moving, so such entries are never trusted.
+        boolean isRacy(long granularityMillis) {
+            return verifiedMillis - modifiedMillis <= granularityMillis;
+        }
+    }
+}
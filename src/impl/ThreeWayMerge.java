@@ -0,0 +1,115 @@
+package impl;
+
+import model.ConflictInfo;
+import model.Hunk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ThreeWayMerge {
+    public record Result(List<String> lines, List<ConflictInfo.ConflictBlock> conflicts) {
+        public Result {
+            lines = List.copyOf(lines);
+            conflicts = List.copyOf(conflicts);
+        }
+
+        public boolean isClean() {
+            return conflicts.isEmpty();
+        }
+    }
+
+    public static boolean changesOverlap(List<String> baseLines, List<String> sourceLines, List<String> targetLines) {
+        List<Hunk> sourceHunks = DiffGenerator.computeHunks(baseLines, sourceLines);
+        List<Hunk> targetHunks = DiffGenerator.computeHunks(baseLines, targetLines);
+        return hunksOverlap(sourceHunks, targetHunks);
+    }
+
+    public static boolean hunksOverlap(List<Hunk> sourceHunks, List<Hunk> targetHunks) {
+        int i = 0, j = 0;
+        while (i < sourceHunks.size() && j < targetHunks.size()) {
+            Hunk source = sourceHunks.get(i);
+            Hunk target = targetHunks.get(j);
+            if (source.overlaps(target)) {
+                return true;
+            }
+            if (source.oldEnd() < target.oldEnd()) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    public static Result merge(List<String> baseLines, List<String> ourLines, List<String> theirLines) {
+        List<Hunk> ours = DiffGenerator.computeHunks(baseLines, ourLines);
+        List<Hunk> theirs = DiffGenerator.computeHunks(baseLines, theirLines);
+        List<String> merged = new ArrayList<>();
+        List<ConflictInfo.ConflictBlock> conflicts = new ArrayList<>();
+
+        int i = 0, j = 0, cursor = 0;
+        while (i < ours.size() || j < theirs.size()) {
+            List<Hunk> ourGroup = new ArrayList<>();
+            List<Hunk> theirGroup = new ArrayList<>();
+            Hunk first;
+            if (j >= theirs.size() || (i < ours.size() && ours.get(i).oldStart() <= theirs.get(j).oldStart())) {
+                first = ours.get(i++);
+                ourGroup.add(first);
+            } else {
+                first = theirs.get(j++);
+                theirGroup.add(first);
+            }
+
+            // Grow the cluster until no hunk from either side touches it.
+            int start = first.oldStart();
+            int end = first.oldEnd();
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+                if (i < ours.size() && ours.get(i).oldStart() <= end) {
+                    Hunk hunk = ours.get(i++);
+                    ourGroup.add(hunk);
+                    end = Math.max(end, hunk.oldEnd());
+                    grown = true;
+                }
+                if (j < theirs.size() && theirs.get(j).oldStart() <= end) {
+                    Hunk hunk = theirs.get(j++);
+                    theirGroup.add(hunk);
+                    end = Math.max(end, hunk.oldEnd());
+                    grown = true;
+                }
+            }
+
+            merged.addAll(baseLines.subList(cursor, start));
+            if (theirGroup.isEmpty()) {
+                merged.addAll(apply(baseLines, start, end, ourGroup));
+            } else if (ourGroup.isEmpty()) {
+                merged.addAll(apply(baseLines, start, end, theirGroup));
+            } else {
+                List<String> ourResult = apply(baseLines, start, end, ourGroup);
+                List<String> theirResult = apply(baseLines, start, end, theirGroup);
+                if (!ourResult.equals(theirResult)) {
+                    conflicts.add(new ConflictInfo.ConflictBlock(start, Math.max(start, end - 1),
+                            String.join("\n", ourResult), String.join("\n", theirResult)));
+                }
+                merged.addAll(ourResult);
+            }
+            cursor = end;
+        }
+        merged.addAll(baseLines.subList(cursor, baseLines.size()));
+
+        return new Result(merged, conflicts);
+    }
+
+    private static List<String> apply(List<String> baseLines, int start, int end, List<Hunk> hunks) {
+        List<String> result = new ArrayList<>();
+        int position = start;
+        for (Hunk hunk : hunks) {
+            result.addAll(baseLines.subList(position, hunk.oldStart()));
+            result.addAll(hunk.newLines());
+            position = hunk.oldEnd();
+        }
+        result.addAll(baseLines.subList(position, end));
+        return result;
+    }
+}
@@ -0,0 +1,418 @@
+package impl;
+
+import model.FileStatus;
+import utils.FileUtils;
+import utils.HashUtils;
+import exceptions.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+// A split index: a large base file that is rarely rewritten, plus small append-only logs of changes.
+// Each log belongs to a generation; a merge starts a new generation, writes the base for the
+// previous ones and only then deletes their logs, so a crash at any point loses nothing.
+public class TrackerIndex {
+    private static final int MAGIC = 0x56494E44; // "VIND"
+    private static final int VERSION = 3;
+    private static final byte HASH_RAW = 1;
+    private static final byte HASH_TEXT = 0;
+    private static final int HASH_LENGTH = 32;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final String LOG_PREFIX = "index.log.";
+    private static final int MIN_MERGE_RECORDS = 1024;
+
+    private final Path indexFile;
+    private final Map<String, Entry> entries;
+    private final Executor mergeExecutor;
+    private long generation;
+    private long logRecords;
+    private CompletableFuture<Void> pendingMerge;
+
+    public TrackerIndex(String repositoryPath) {
+        this(repositoryPath, ForkJoinPool.commonPool());
+    }
+
+    public TrackerIndex(String repositoryPath, Executor mergeExecutor) {
+        this.indexFile = Paths.get(repositoryPath, ".vcs", "index");
+        this.entries = new LinkedHashMap<>();
+        this.mergeExecutor = mergeExecutor;
+        this.pendingMerge = CompletableFuture.completedFuture(null);
+    }
+
+    public record Entry(String path, String hash, FileStatus status, List<String> versions, StatCache.Stat stat,
+                        String stagedHash) {
+        public Entry {
+            versions = List.copyOf(versions);
+        }
+
+        public Entry(String path, String hash, FileStatus status, List<String> versions, StatCache.Stat stat) {
+            this(path, hash, status, versions, stat, null);
+        }
+    }
+
+    public boolean exists() {
+        return Files.isRegularFile(indexFile);
+    }
+
+    // One sequential read of the base, then the logs of the current and any unmerged generations.
+    public synchronized List<Entry> load() throws FileOperationException {
+        entries.clear();
+        generation = 0;
+        logRecords = 0;
+        if (exists()) {
+            try {
+                generation = decode(Files.readAllBytes(indexFile), entries);
+            } catch (IOException e) {
+                throw new FileOperationException.FileAccessException("Failed to read index: " + indexFile);
+            }
+        }
+
+        long latest = generation;
+        for (long logGeneration : logGenerations()) {
+            if (logGeneration >= generation) {
+                logRecords += replay(logFile(logGeneration));
+                latest = Math.max(latest, logGeneration);
+            }
+        }
+        generation = latest;
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized void put(Entry entry) throws FileOperationException {
+        putAll(List.of(entry));
+    }
+
+    // A batch of changes is one append and one fsync, however large the base is.
+    public synchronized void putAll(Collection<Entry> changed) throws FileOperationException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        try {
+            for (Entry entry : changed) {
+                ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(payload);
+                out.writeByte(RECORD_PUT);
+                writeEntry(out, entry);
+                appendRecord(records, payload.toByteArray());
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to encode index entries", e);
+        }
+        append(records.toByteArray(), changed.size());
+        for (Entry entry : changed) {
+            entries.put(entry.path(), entry);
+        }
+    }
+
+    public synchronized void remove(String path) throws FileOperationException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeByte(RECORD_REMOVE);
+            out.writeUTF(path);
+            appendRecord(records, payload.toByteArray());
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to encode index removal", e);
+        }
+        append(records.toByteArray(), 1);
+        entries.remove(path);
+    }
+
+    // Replaces the whole index with the given entries and drops every log.
+    public void write(Collection<Entry> replacement) throws FileOperationException {
+        long baseGeneration;
+        List<Entry> snapshot;
+        synchronized (this) {
+            entries.clear();
+            for (Entry entry : replacement) {
+                entries.put(entry.path(), entry);
+            }
+            baseGeneration = ++generation;
+            logRecords = 0;
+            snapshot = new ArrayList<>(entries.values());
+        }
+        writeBase(snapshot, baseGeneration);
+    }
+
+    // Folds the logs into a new base. Appends keep going to the next generation's log meanwhile.
+    public void merge() throws FileOperationException {
+        long baseGeneration;
+        List<Entry> snapshot;
+        synchronized (this) {
+            if (logRecords == 0) {
+                return;
+            }
+            baseGeneration = ++generation;
+            logRecords = 0;
+            snapshot = new ArrayList<>(entries.values());
+        }
+        writeBase(snapshot, baseGeneration);
+    }
+
+    public synchronized CompletableFuture<Void> mergeInBackground() {
+        if (pendingMerge.isDone()) {
+            pendingMerge = CompletableFuture.runAsync(() -> {
+                try {
+                    merge();
+                } catch (FileOperationException e) {
+                    throw new CompletionException(e);
+                }
+            }, mergeExecutor);
+        }
+        return pendingMerge;
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public synchronized long getLogRecordCount() {
+        return logRecords;
+    }
+
+    public Path getIndexFile() {
+        return indexFile;
+    }
+
+    private void append(byte[] records, int count) throws FileOperationException {
+        Path log = logFile(generation);
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(records);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to append to index log: " + log, e);
+        }
+        logRecords += count;
+        if (logRecords >= Math.max(MIN_MERGE_RECORDS, entries.size() / 4)) {
+            mergeInBackground();
+        }
+    }
+
+    private void writeBase(List<Entry> snapshot, long baseGeneration) throws FileOperationException {
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path temp = Files.createTempFile(indexFile.getParent(), "index-", ".tmp");
+            try {
+                FileUtils.writeDurably(temp, encode(snapshot, baseGeneration));
+                synchronized (this) {
+                    // A newer base may already be in place if merges overlapped.
+                    if (readBaseGeneration() < baseGeneration) {
+                        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE);
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            // The logs are only dropped once the base that replaces them is on disk under its final name.
+            FileUtils.syncDirectory(indexFile.getParent());
+            for (long logGeneration : logGenerations()) {
+                if (logGeneration < baseGeneration) {
+                    Files.deleteIfExists(logFile(logGeneration));
+                }
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to write index: " + indexFile, e);
+        }
+    }
+
+    private long readBaseGeneration() throws IOException {
+        if (!exists()) {
+            return -1;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(indexFile))) {
+            if (in.readInt() != MAGIC) {
+                return -1;
+            }
+            return in.readInt() >= 3 ? in.readLong() : 0;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    private Path logFile(long logGeneration) {
+        return indexFile.resolveSibling(LOG_PREFIX + logGeneration);
+    }
+
+    private List<Long> logGenerations() throws FileOperationException {
+        List<Long> generations = new ArrayList<>();
+        if (!Files.isDirectory(indexFile.getParent())) {
+            return generations;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(indexFile.getParent(), LOG_PREFIX + "*")) {
+            for (Path log : stream) {
+                try {
+                    generations.add(Long.parseLong(log.getFileName().toString().substring(LOG_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours.
+                }
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to list index logs", e);
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private int replay(Path log) throws FileOperationException {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(log);
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            throw new FileOperationException.FileAccessException("Failed to read index log: " + log);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int replayed = 0;
+        while (buffer.remaining() >= 2 * Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length <= 0 || buffer.remaining() < length + Integer.BYTES) {
+                break;
+            }
+            int start = buffer.position();
+            CRC32 crc = new CRC32();
+            crc.update(data, start, length);
+            buffer.position(start + length);
+            if ((int) crc.getValue() != buffer.getInt()) {
+                // A torn append from a crash; everything before it is intact.
+                break;
+            }
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, start, length));
+                if (in.readByte() == RECORD_PUT) {
+                    Entry entry = readEntry(in, VERSION);
+                    entries.put(entry.path(), entry);
+                } else {
+                    entries.remove(in.readUTF());
+                }
+            } catch (IOException | IndexOutOfBoundsException e) {
+                throw new FileOperationException.FileCorruptedException("Malformed index log record: " + log);
+            }
+            replayed++;
+        }
+        return replayed;
+    }
+
+    private static void appendRecord(ByteArrayOutputStream records, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        records.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(payload.length).array());
+        records.writeBytes(payload);
+        records.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).array());
+    }
+
+    static byte[] encode(Collection<Entry> entries, long generation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + entries.size() * 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(generation);
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+            writeEntry(out, entry);
+        }
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.writeUTF(entry.path());
+        writeHash(out, entry.hash());
+        out.writeByte(entry.status().ordinal());
+        out.writeInt(entry.versions().size());
+        for (String version : entry.versions()) {
+            out.writeUTF(version);
+        }
+        out.writeBoolean(entry.stat() != null);
+        if (entry.stat() != null) {
+            entry.stat().writeTo(out);
+        }
+        out.writeBoolean(entry.stagedHash() != null);
+        if (entry.stagedHash() != null) {
+            writeHash(out, entry.stagedHash());
+        }
+    }
+
+    // Returns the generation the base was written for; older formats count as generation 0.
+    static long decode(byte[] data, Map<String, Entry> target) throws FileOperationException {
+        if (data.length < 20) {
+            throw new FileOperationException.FileCorruptedException("Truncated index");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - Long.BYTES);
+        if (crc.getValue() != ByteBuffer.wrap(data, data.length - Long.BYTES, Long.BYTES).getLong()) {
+            throw new FileOperationException.FileCorruptedException("Index checksum mismatch");
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - Long.BYTES));
+            int version;
+            if (in.readInt() != MAGIC || (version = in.readInt()) < 1 || version > VERSION) {
+                throw new FileOperationException.FileCorruptedException("Unsupported index format");
+            }
+            long generation = version >= 3 ? in.readLong() : 0;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = readEntry(in, version);
+                target.put(entry.path(), entry);
+            }
+            return generation;
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new FileOperationException.FileCorruptedException("Malformed index entry");
+        }
+    }
+
+    static Entry readEntry(DataInputStream in, int version) throws IOException {
+        String path = in.readUTF();
+        String hash = readHash(in);
+        FileStatus status = FileStatus.values()[in.readUnsignedByte()];
+        int versionCount = in.readInt();
+        List<String> versions = new ArrayList<>(versionCount);
+        for (int i = 0; i < versionCount; i++) {
+            versions.add(in.readUTF());
+        }
+        StatCache.Stat stat = in.readBoolean() ? StatCache.Stat.readFrom(in) : null;
+        String stagedHash = version >= 2 && in.readBoolean() ? readHash(in) : null;
+        return new Entry(path, hash, status, versions, stat, stagedHash);
+    }
+
+    // Content hashes are stored as 32 raw bytes; anything else falls back to a string.
+    private static void writeHash(DataOutputStream out, String hash) throws IOException {
+        byte[] raw = HashUtils.hexToBytes(hash);
+        if (raw != null && raw.length == HASH_LENGTH && HashUtils.bytesToHex(raw).equals(hash)) {
+            out.writeByte(HASH_RAW);
+            out.write(raw);
+        } else {
+            out.writeByte(HASH_TEXT);
+            out.writeUTF(hash);
+        }
+    }
+
+    private static String readHash(DataInputStream in) throws IOException {
+        if (in.readByte() == HASH_RAW) {
+            byte[] raw = new byte[HASH_LENGTH];
+            in.readFully(raw);
+            return HashUtils.bytesToHex(raw);
+        }
+        return in.readUTF();
+    }
+}
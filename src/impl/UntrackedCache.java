@@ -0,0 +1,142 @@
+package impl;
+
+import utils.IgnoreRules;
+import exceptions.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Remembers the listing of every directory in the working tree. A directory's mtime only moves when
+// entries are added, removed or renamed in it, so an unchanged directory is not read again; its
+// subdirectories are still visited, because changes below it do not touch its own mtime.
+class UntrackedCache {
+    private static final long DEFAULT_GRANULARITY_MILLIS = 2000;
+
+    private final Path root;
+    private final long granularityMillis;
+    private final Map<Path, Listing> listings;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private IgnoreRules rules;
+    private String rulesSignature;
+
+    UntrackedCache(Path root) {
+        this(root, DEFAULT_GRANULARITY_MILLIS);
+    }
+
+    UntrackedCache(Path root, long granularityMillis) {
+        this.root = root;
+        this.granularityMillis = granularityMillis;
+        this.listings = new ConcurrentHashMap<>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    synchronized List<Path> listFiles() throws FileOperationException {
+        refreshRules();
+        List<Path> files = new ArrayList<>();
+        Deque<Path> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Path dir = pending.pop();
+            Listing listing = listing(dir);
+            if (listing == null) {
+                continue;
+            }
+            for (String name : listing.files()) {
+                files.add(dir.resolve(name));
+            }
+            for (String name : listing.directories()) {
+                pending.push(dir.resolve(name));
+            }
+        }
+        return files;
+    }
+
+    synchronized void invalidate() {
+        listings.clear();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private Listing listing(Path dir) throws FileOperationException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            listings.remove(dir);
+            return null;
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+        Listing cached = listings.get(dir);
+        // As with the stat cache, a listing taken within the timestamp granularity of the last change is not trusted.
+        if (cached != null && cached.modifiedMillis() == modified
+                && cached.verifiedMillis() - modified > granularityMillis) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        long verified = System.currentTimeMillis();
+        List<String> files = new ArrayList<>();
+        List<String> directories = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                String name = child.getFileName().toString();
+                BasicFileAttributes childAttributes;
+                try {
+                    childAttributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (childAttributes.isDirectory()) {
+                    if (!name.equals(WorkingTreeWalker.REPOSITORY_DIR)
+                            && (rules.isEmpty() || !rules.matches(IgnoreRules.relativize(root, child), true))) {
+                        directories.add(name);
+                    }
+                } else if (childAttributes.isRegularFile()
+                        && (rules.isEmpty() || !rules.matches(IgnoreRules.relativize(root, child), false))) {
+                    files.add(name);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            listings.remove(dir);
+            return null;
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to list directory: " + dir, e);
+        }
+
+        Listing listing = new Listing(modified, verified, List.copyOf(files), List.copyOf(directories));
+        listings.put(dir, listing);
+        return listing;
+    }
+
+    // Listings are stored after ignore filtering, so any edit to the ignore file drops them all.
+    private void refreshRules() throws FileOperationException {
+        Path ignoreFile = root.resolve(IgnoreRules.FILE_NAME);
+        String signature;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(ignoreFile, BasicFileAttributes.class);
+            signature = attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            signature = "";
+        }
+        if (rules == null || !signature.equals(rulesSignature)) {
+            rules = IgnoreRules.load(root);
+            rulesSignature = signature;
+            listings.clear();
+        }
+    }
+
+    private record Listing(long modifiedMillis, long verifiedMillis, List<String> files, List<String> directories) {
+    }
+}
@@ -6,31 +6,39 @@ import utils.*;
 import exceptions.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 public class VersionControlSystem implements Uploadable, Versionable, Trackable {
     private final String repositoryPath;
-    private final List<VersionInfo> versionHistory;
     private final List<Consumer<String>> fileChangeListeners;
+    private final FileEventBus eventBus;
     private final FileTracker fileTracker;
     private final VersionManager versionManager;
     private final DiffGenerator diffGenerator;
     private final MergeHandler mergeHandler;
+    private final RebaseEngine rebaseEngine;
 
     public VersionControlSystem(String repositoryPath) throws FileOperationException {
+        this(repositoryPath, new LooseObjectStore(repositoryPath));
+    }
+
+    public VersionControlSystem(String repositoryPath, ObjectStore objectStore) throws FileOperationException {
         this.repositoryPath = repositoryPath;
-        this.versionHistory = new ArrayList<>();
-        this.fileChangeListeners = new ArrayList<>();
+        this.fileChangeListeners = new CopyOnWriteArrayList<>();
+        this.eventBus = new FileEventBus(fileChangeListeners);
 
-        this.fileTracker = new FileTracker(repositoryPath);
-        this.versionManager = new VersionManager(repositoryPath);
+        this.fileTracker = new FileTracker(repositoryPath, objectStore);
+        this.versionManager = new VersionManager(repositoryPath, objectStore);
         this.diffGenerator = new DiffGenerator(versionManager, fileTracker);
         this.mergeHandler = new MergeHandler(versionManager);
+        this.rebaseEngine = new RebaseEngine(versionManager);
 
         initializeRepository();
     }
@@ -53,6 +61,18 @@ public class VersionControlSystem implements Uploadable, Versionable, Trackable
         return diffGenerator;
     }
 
+    public FileEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public RebaseEngine getRebaseEngine() {
+        return rebaseEngine;
+    }
+
+    public Map<String, FileStatus> scanStatus() throws VCSException {
+        return fileTracker.scanStatus();
+    }
+
     @Override
     public boolean upload(File file) throws VCSException, IOException {
         if (file == null || !file.exists()) {
@@ -64,16 +84,19 @@ public class VersionControlSystem implements Uploadable, Versionable, Trackable
 
     @Override
     public boolean uploadDirectory(File directory) throws VCSException, IOException {
-        if (!directory.isDirectory()) {
-            throw new FileOperationException("Not a directory: " + directory.getPath());
+        if (directory == null || !directory.isDirectory()) {
+            throw new FileOperationException("Not a directory: " + (directory != null ? directory.getPath() : "null"));
         }
-        boolean success = true;
-        for (File file : Objects.requireNonNull(directory.listFiles())) {
-            if (file.isFile()) {
-                success &= upload(file);
-            }
+        List<File> files = new ArrayList<>();
+        Path root = Paths.get(repositoryPath);
+        for (Path file : WorkingTreeWalker.listFiles(directory.toPath(), root, IgnoreRules.load(root))) {
+            files.add(file.toFile());
+        }
+        if (!files.isEmpty()) {
+            // Hashing and storing run on the tracker's bounded pool; listeners see the import as one batch.
+            eventBus.publishAll(fileTracker.trackFiles(files).keySet());
         }
-        return success;
+        return true;
     }
 
     @Override
@@ -96,6 +119,10 @@ public class VersionControlSystem implements Uploadable, Versionable, Trackable
             throw new VCSException("Invalid version message");
         }
 
+        if (fileTracker.hasStagedFiles()) {
+            return createVersionFromStaged(message);
+        }
+
         List<String> trackedFiles = fileTracker.getTrackedFiles();
         if (trackedFiles.isEmpty()) {
             throw new VCSException("No tracked files to create a version");
@@ -109,13 +136,16 @@ public class VersionControlSystem implements Uploadable, Versionable, Trackable
             }
         }
 
-        if (!versionHistory.isEmpty()) {
-            VersionInfo lastVersion = getCurrentVersion();
+        Set<String> trackedPaths = currentHashes.keySet();
+        if (getCurrentVersion() != null) {
+            // The current version only lists its own changes; compare against everything committed so far.
+            Map<String, String> lastHashes = versionManager.getSnapshotResolver()
+                    .resolveView(getCurrentVersion().getVersionId());
             Map<String, String> diffHashes = new HashMap<>();
             for (Map.Entry<String, String> entry : currentHashes.entrySet()) {
                 String filePath = entry.getKey();
                 String currentHash = entry.getValue();
-                String lastHash = lastVersion.getFileHashes().get(filePath);
+                String lastHash = lastHashes.get(filePath);
                 if (lastHash == null || !lastHash.equals(currentHash)) {
                     diffHashes.put(filePath, currentHash);
                 }
@@ -123,16 +153,67 @@ public class VersionControlSystem implements Uploadable, Versionable, Trackable
             currentHashes = diffHashes;
         }
 
-        String versionId = versionManager.createVersion(message, currentHashes);
-        versionHistory.add(versionManager.getVersion(versionId));
+        Map<String, String> changes = new HashMap<>(currentHashes);
+        recordRemovals(changes, trackedPaths);
+        String versionId = versionManager.createDeltaVersion(message, changes);
 
-        for (String filePath : currentHashes.keySet()) {
-            fileTracker.commitFile(filePath, versionId);
-        }
+        fileTracker.commitFiles(currentHashes.keySet(), versionId);
+
+        return versionId;
+    }
 
+    // Versions already record only what changed, so a staged commit shares everything else with its parent.
+    private String createVersionFromStaged(String message) throws VCSException {
+        Map<String, String> staged = fileTracker.getStagedHashes();
+        Map<String, String> changes = new HashMap<>(staged);
+        recordRemovals(changes, new HashSet<>(fileTracker.getTrackedFiles()));
+        String versionId = versionManager.createDeltaVersion(message, changes);
+        fileTracker.commitStaged(staged, versionId);
         return versionId;
     }
 
+    // A path the current snapshot still holds but that is no longer tracked gets a null hash, which the
+    // delta records as a removal.
+    private void recordRemovals(Map<String, String> changes, Set<String> trackedFiles) throws VCSException {
+        VersionInfo current = getCurrentVersion();
+        if (current == null) {
+            return;
+        }
+        for (String filePath : versionManager.getSnapshotResolver().resolveView(current.getVersionId()).keySet()) {
+            if (!trackedFiles.contains(filePath)) {
+                changes.put(filePath, null);
+            }
+        }
+    }
+
+    public String stageFile(String filePath) throws VCSException, IOException {
+        String hash = fileTracker.stageFile(filePath);
+        notifyFileChanged(filePath);
+        return hash;
+    }
+
+    public void unstageFile(String filePath) throws VCSException {
+        fileTracker.unstageFile(filePath);
+        notifyFileChanged(filePath);
+    }
+
+    public String cherryPick(String versionId) throws VCSException {
+        return rebase(List.of(versionId)).getFirst();
+    }
+
+    public List<String> rebase(List<String> versionIds) throws VCSException {
+        VersionInfo current = getCurrentVersion();
+        if (current == null) {
+            throw new VersionException("No version to rebase onto");
+        }
+
+        return rebaseEngine.rebase(versionIds, current.getVersionId());
+    }
+
+    public int migrateObjectLayout() throws FileOperationException {
+        return ObjectPaths.migrateToFanOut(repositoryPath);
+    }
+
     @Override
     public void revertToVersion(String versionId) throws VCSException, IOException {
         VersionInfo version = versionManager.getVersion(versionId);
@@ -140,14 +221,15 @@ public class VersionControlSystem implements Uploadable, Versionable, Trackable
             throw new VersionException("Version not found: " + versionId);
         }
 
-        for (Map.Entry<String, String> entry : version.getFileHashes().entrySet()) {
+        for (Map.Entry<String, String> entry : versionManager.getSnapshotResolver().resolveView(versionId).entrySet()) {
             String filePath = entry.getKey();
             String hash = entry.getValue();
-            Path sourceFile = Paths.get(repositoryPath, ".vcs", "objects", hash);
             Path targetFile = Paths.get(filePath);
 
             Files.createDirectories(targetFile.getParent());
-            Files.copy(sourceFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            try (InputStream in = versionManager.getObjectStore().open(hash)) {
+                Files.copy(in, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            }
 
             FileMetadata metadata = fileTracker.getFileMetadata(filePath);
             if (metadata != null) {
@@ -159,15 +241,12 @@ public class VersionControlSystem implements Uploadable, Versionable, Trackable
 
     @Override
     public List<VersionInfo> getVersionHistory() {
-        return new ArrayList<>(versionHistory);
+        return versionManager.getVersionHistory();
     }
 
     @Override
     public VersionInfo getCurrentVersion() {
-        if (versionHistory.isEmpty()) {
-            return null;
-        }
-        return versionHistory.getLast();
+        return versionManager.getCurrentVersion();
     }
 
     @Override
@@ -210,8 +289,6 @@ public class VersionControlSystem implements Uploadable, Versionable, Trackable
     }
 
     private void notifyFileChanged(String filePath) {
-        for (Consumer<String> listener : fileChangeListeners) {
-            listener.accept(filePath);
-        }
+        eventBus.publish(filePath);
     }
 }
\ No newline at end of file
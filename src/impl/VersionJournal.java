@@ -0,0 +1,429 @@
+package impl;
+
+import model.VersionInfo;
+import utils.HashUtils;
+import utils.VersionCodec;
+import exceptions.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Versions are appended to numbered segment files as [int length][encoded version] frames.
+// Each segment has an append-only index of headers (id, timestamp, author, snapshot tree, file count and
+// where the record lives). A checkpoint appends the headers written since the last one, and sealing a
+// segment completes its index, so opening a repository reads the indexes and only scans the records
+// appended after the last checkpoint. Messages stay in the records.
+public class VersionJournal {
+    public static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String LEGACY_CHECKPOINT_FILE = "journal.ckpt";
+    private static final int INDEX_MAGIC = 0x564A4958; // "VJIX"
+    private static final int INDEX_VERSION = 1;
+    private static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final int CHECKPOINT_INTERVAL = 1024;
+    private static final int HASH_LENGTH = 32;
+    private static final int HASH_TEXT = 0;
+    private static final int HASH_RAW = 1;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final List<Header> headers;
+    private final Map<String, String> authors;
+    private int activeSegment;
+    private long activeSize;
+    private int indexed;
+    private int sinceCheckpoint;
+
+    public VersionJournal(Path directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public VersionJournal(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.headers = new ArrayList<>();
+        this.authors = new HashMap<>();
+        this.activeSegment = 1;
+    }
+
+    // The tree root is kept as packed bytes rather than a hex string. A file count of -1 means it is not
+    // known without reading the snapshot, as for tree records written before the codec stored it.
+    public record Header(String versionId, LocalDateTime timestamp, String author, byte[] tree, boolean delta,
+                         int fileCount, int segment, long offset, int length) {
+        public String treeHash() {
+            return unpackHash(tree);
+        }
+    }
+
+    public static boolean isJournalFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) || name.equals(LEGACY_CHECKPOINT_FILE) || name.endsWith(".tmp");
+    }
+
+    // One write and one fsync per version; the segment rolls over once it reaches its size limit.
+    public synchronized Header append(VersionInfo version) throws FileOperationException {
+        return append(version, version.getFileCount());
+    }
+
+    // For records that leave their file table to a snapshot tree, the count of files in that tree.
+    public synchronized Header append(VersionInfo version, int fileCount) throws FileOperationException {
+        byte[] payload = VersionCodec.encode(version, fileCount);
+        if (activeSize > 0 && activeSize + Integer.BYTES + payload.length > segmentBytes) {
+            // Sealing a segment completes its index: nothing in it will ever be scanned again.
+            writeCheckpoint();
+            activeSegment++;
+            activeSize = 0;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + payload.length);
+        frame.putInt(payload.length).put(payload).flip();
+
+        Path segment = segmentFile(activeSegment);
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                long position = activeSize;
+                while (frame.hasRemaining()) {
+                    position += channel.write(frame, position);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to append to version journal: " + segment, e);
+        }
+
+        Header header = index(version, fileCount, activeSegment, activeSize + Integer.BYTES, payload.length);
+        activeSize += Integer.BYTES + payload.length;
+        if (++sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+            writeCheckpoint();
+        }
+        return header;
+    }
+
+    public synchronized int size() {
+        return headers.size();
+    }
+
+    public synchronized List<Header> getHeaders() {
+        return new ArrayList<>(headers);
+    }
+
+    public VersionInfo read(Header header) throws FileOperationException {
+        return VersionCodec.decode(readRecord(header));
+    }
+
+    // Decodes the record without its file table, so listing history never touches the snapshot trees.
+    public String readMessage(Header header) throws FileOperationException {
+        return VersionCodec.decodeHeader(readRecord(header)).getMessage();
+    }
+
+    private byte[] readRecord(Header header) throws FileOperationException {
+        try (FileChannel channel = FileChannel.open(segmentFile(header.segment()), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(header.length());
+            long position = header.offset();
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new FileOperationException.FileCorruptedException("Truncated version journal");
+                }
+                position += read;
+            }
+            return buffer.array();
+        } catch (IOException e) {
+            throw new FileOperationException.FileAccessException("Failed to read version journal: " + header.versionId());
+        }
+    }
+
+    // Appends the headers written since the last checkpoint to the active segment's index. Each call
+    // writes only those headers, so the cost does not grow with the size of the repository.
+    public synchronized void writeCheckpoint() throws FileOperationException {
+        sinceCheckpoint = 0;
+        if (indexed == headers.size()) {
+            return;
+        }
+        List<Header> pending = headers.subList(indexed, headers.size());
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + pending.size() * 96);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(pending.size());
+            for (Header header : pending) {
+                writeHeader(out, header);
+            }
+            out.flush();
+            byte[] body = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            ByteBuffer frame = ByteBuffer.allocate(3 * Integer.BYTES + body.length + Long.BYTES);
+            frame.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putInt(body.length).put(body).putLong(crc.getValue()).flip();
+
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(indexFile(activeSegment), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to write version journal checkpoint", e);
+        }
+        indexed = headers.size();
+    }
+
+    public synchronized void open() throws FileOperationException {
+        headers.clear();
+        indexed = 0;
+        activeSegment = 1;
+        activeSize = 0;
+        sinceCheckpoint = 0;
+        try {
+            // Replaced by the per-segment indexes; a full scan rebuilds them.
+            Files.deleteIfExists(directory.resolve(LEGACY_CHECKPOINT_FILE));
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to remove old version journal checkpoint", e);
+        }
+        List<Integer> segments = listSegments();
+        for (int segment : segments) {
+            boolean last = segment == segments.getLast();
+            activeSegment = segment;
+            activeSize = scan(segment, readIndex(segment), last);
+            // A sealed segment is fully indexed before the next one is started.
+            if (!last || sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                writeCheckpoint();
+            }
+        }
+    }
+
+    // Returns the verified end of the segment. A torn frame at the end of the last segment is the
+    // remains of an interrupted append and is cut off; anywhere else it means real damage.
+    private long scan(int segment, long from, boolean last) throws FileOperationException {
+        MappedByteBuffer mapped = map(segment);
+        long position = from;
+        while (position + Integer.BYTES <= mapped.limit()) {
+            int length = mapped.getInt((int) position);
+            if (length <= 0 || position + Integer.BYTES + length > mapped.limit()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            mapped.get((int) position + Integer.BYTES, payload);
+            VersionInfo version;
+            int[] fileCount = new int[1];
+            try {
+                version = VersionCodec.decodeHeader(payload, fileCount);
+            } catch (FileOperationException.FileCorruptedException e) {
+                break;
+            }
+            index(version, fileCount[0], segment, position + Integer.BYTES, length);
+            sinceCheckpoint++;
+            position += Integer.BYTES + length;
+        }
+
+        if (position < mapped.limit()) {
+            if (!last) {
+                throw new FileOperationException.FileCorruptedException(
+                        "Corrupt version journal segment: " + segmentFile(segment));
+            }
+            try (FileChannel channel = FileChannel.open(segmentFile(segment), StandardOpenOption.WRITE)) {
+                channel.truncate(position);
+            } catch (IOException e) {
+                throw new FileOperationException("Failed to repair version journal: " + segmentFile(segment), e);
+            }
+        }
+        return position;
+    }
+
+    // Adds the headers recorded in the segment's index and returns where the indexed records end, so
+    // only what follows is scanned. A torn or damaged frame and everything after it is cut off and
+    // rebuilt by the scan; an index that points past the end of its segment is discarded.
+    private long readIndex(int segment) throws FileOperationException {
+        Path file = indexFile(segment);
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+        int before = headers.size();
+        long end = 0;
+        int valid = 0;
+        try {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (data.remaining() >= 3 * Integer.BYTES) {
+                if (data.getInt() != INDEX_MAGIC || data.getInt() != INDEX_VERSION) {
+                    break;
+                }
+                int length = data.getInt();
+                if (length < 0 || data.remaining() < (long) length + Long.BYTES) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                data.get(body);
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if (crc.getValue() != data.getLong()) {
+                    break;
+                }
+                List<Header> frame = readFrame(body, segment);
+                if (frame == null) {
+                    break;
+                }
+                headers.addAll(frame);
+                if (!frame.isEmpty()) {
+                    end = frame.getLast().offset() + frame.getLast().length();
+                }
+                valid = data.position();
+            }
+
+            if (end > Files.size(segmentFile(segment))) {
+                headers.subList(before, headers.size()).clear();
+                Files.delete(file);
+                return 0;
+            }
+            if (valid < data.limit()) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to read version journal index: " + file, e);
+        }
+        indexed = headers.size();
+        return end;
+    }
+
+    private List<Header> readFrame(byte[] body, int segment) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            int count = in.readInt();
+            List<Header> frame = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Header header = readHeader(in);
+                if (header.segment() != segment) {
+                    return null;
+                }
+                frame.add(header);
+            }
+            return frame;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private Header index(VersionInfo version, int fileCount, int segment, long offset, int length) {
+        Header header = new Header(version.getVersionId(), version.getTimestamp(), intern(version.getAuthor()),
+                packHash(version.getTreeHash()), version.isDelta(), fileCount, segment, offset, length);
+        headers.add(header);
+        return header;
+    }
+
+    // Same convention as the codec: a marker byte, then 32 raw bytes for a SHA-256 hex hash or UTF-8 text.
+    private static byte[] packHash(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        byte[] raw = HashUtils.hexToBytes(hash);
+        boolean canonical = raw != null && raw.length == HASH_LENGTH && HashUtils.bytesToHex(raw).equals(hash);
+        byte[] body = canonical ? raw : hash.getBytes(StandardCharsets.UTF_8);
+        byte[] packed = new byte[body.length + 1];
+        packed[0] = (byte) (canonical ? HASH_RAW : HASH_TEXT);
+        System.arraycopy(body, 0, packed, 1, body.length);
+        return packed;
+    }
+
+    private static String unpackHash(byte[] packed) {
+        if (packed == null) {
+            return null;
+        }
+        return packed[0] == HASH_RAW ? HashUtils.bytesToHex(Arrays.copyOfRange(packed, 1, packed.length))
+                : new String(packed, 1, packed.length - 1, StandardCharsets.UTF_8);
+    }
+
+    // Most repositories have a handful of authors, so each name is kept once across all headers.
+    private String intern(String author) {
+        return author == null ? null : authors.computeIfAbsent(author, key -> key);
+    }
+
+    private static void writeHeader(DataOutputStream out, Header header) throws IOException {
+        out.writeUTF(header.versionId());
+        out.writeBoolean(header.timestamp() != null);
+        if (header.timestamp() != null) {
+            out.writeLong(header.timestamp().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(header.timestamp().getNano());
+        }
+        out.writeBoolean(header.author() != null);
+        if (header.author() != null) {
+            out.writeUTF(header.author());
+        }
+        out.writeInt(header.tree() != null ? header.tree().length : -1);
+        if (header.tree() != null) {
+            out.write(header.tree());
+        }
+        out.writeBoolean(header.delta());
+        out.writeInt(header.fileCount());
+        out.writeInt(header.segment());
+        out.writeLong(header.offset());
+        out.writeInt(header.length());
+    }
+
+    private Header readHeader(DataInputStream in) throws IOException {
+        String versionId = in.readUTF();
+        LocalDateTime timestamp = in.readBoolean()
+                ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+        String author = in.readBoolean() ? intern(in.readUTF()) : null;
+        int treeLength = in.readInt();
+        byte[] tree = null;
+        if (treeLength >= 0) {
+            tree = new byte[treeLength];
+            in.readFully(tree);
+        }
+        boolean delta = in.readBoolean();
+        int fileCount = in.readInt();
+        return new Header(versionId, timestamp, author, tree, delta, fileCount, in.readInt(), in.readLong(),
+                in.readInt());
+    }
+
+    private MappedByteBuffer map(int segment) throws FileOperationException {
+        try (FileChannel channel = FileChannel.open(segmentFile(segment), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            throw new FileOperationException.FileNotFoundException(segmentFile(segment).toString());
+        } catch (IOException e) {
+            throw new FileOperationException.FileAccessException("Failed to map version journal: " + segment);
+        }
+    }
+
+    private List<Integer> listSegments() throws FileOperationException {
+        List<Integer> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    segments.add(Integer.parseInt(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment.
+                }
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to list version journal segments", e);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private Path indexFile(int segment) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segment, INDEX_SUFFIX));
+    }
+}
@@ -1,47 +1,130 @@
 package impl;
 
+import interfaces.ObjectStore;
 import interfaces.Versionable;
 import model.*;
+import utils.LruCache;
+import utils.VersionCodec;
 import exceptions.*;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public final class VersionManager implements Versionable {
+    private static final long MAX_CACHED_FILE_ENTRIES = 1 << 20;
+    private static final int LEGACY_LOAD_PARALLELISM = Runtime.getRuntime().availableProcessors();
 
-public class VersionManager implements Versionable {
     private final String repositoryPath;
     private final List<VersionInfo> versionHistory;
-    private final Map<String, VersionInfo> versionMap;
+    private final Map<String, Integer> versionIndex;
+    private final ObjectStore objectStore;
+    private final VersionJournal journal;
+    private final LruCache<String, VersionInfo> bodies;
+    private final SnapshotTree snapshotTree;
+    private final SnapshotResolver snapshotResolver;
 
     public VersionManager(String repositoryPath) {
+        this(repositoryPath, new LooseObjectStore(repositoryPath));
+    }
+
+    public VersionManager(String repositoryPath, ObjectStore objectStore) {
         this.repositoryPath = repositoryPath;
+        this.objectStore = objectStore;
         this.versionHistory = new ArrayList<>();
-        this.versionMap = new HashMap<>();
+        this.versionIndex = new HashMap<>();
+        this.journal = new VersionJournal(Paths.get(repositoryPath, ".vcs", "versions"));
+        this.bodies = new LruCache<>(MAX_CACHED_FILE_ENTRIES, version -> version.getFileCount() + 1L);
+        this.snapshotTree = new SnapshotTree(objectStore);
+        this.snapshotResolver = new SnapshotResolver(this, snapshotTree);
         loadVersionHistory();
     }
 
+    private void addToHistory(VersionInfo version) {
+        versionIndex.put(version.getVersionId(), versionHistory.size());
+        versionHistory.add(version);
+    }
+
     private void loadVersionHistory() {
+        for (VersionInfo version : loadLegacyVersions()) {
+            addToHistory(version);
+        }
+
+        // Versions from before the journal are one file each and always older than anything journaled.
+        // Journaled versions start out as headers only; their contents are read when first used.
+        try {
+            journal.open();
+            for (VersionJournal.Header header : journal.getHeaders()) {
+                addToHistory(new LazyVersionInfo(header, this::loadBody, this::loadMessage));
+            }
+        } catch (VCSException e) {
+            System.err.println("Failed to read version journal: " + e.getMessage());
+        }
+    }
+
+    // Per-version files are decoded concurrently on a bounded pool; directory order means nothing,
+    // so the result is sorted by timestamp, with file names keeping ties deterministic.
+    private List<VersionInfo> loadLegacyVersions() {
         Path versionsDir = Paths.get(repositoryPath, ".vcs", "versions");
+        List<Path> files = new ArrayList<>();
         if (Files.exists(versionsDir)) {
             try (DirectoryStream<Path> stream = Files.newDirectoryStream(versionsDir)) {
                 for (Path path : stream) {
-                    try {
-                        VersionInfo version = loadVersionFile(path.toFile());
-                        if (version != null) {
-                            versionHistory.add(version);
-                            versionMap.put(version.getVersionId(), version);
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Failed to load version file: " + path + ", Error: " + e.getMessage());
+                    if (!VersionJournal.isJournalFile(path) && Files.isRegularFile(path)) {
+                        files.add(path);
                     }
                 }
             } catch (IOException e) {
                 System.err.println("Failed to read versions directory: " + e.getMessage());
             }
         }
+        if (files.isEmpty()) {
+            return List.of();
+        }
+        Collections.sort(files);
+
+        VersionInfo[] decoded = new VersionInfo[files.size()];
+        ForkJoinPool pool = new ForkJoinPool(Math.min(files.size(), LEGACY_LOAD_PARALLELISM));
+        try {
+            pool.submit(() -> IntStream.range(0, files.size()).parallel().forEach(i -> {
+                try {
+                    decoded[i] = loadVersionFile(files.get(i).toFile());
+                } catch (Exception e) {
+                    System.err.println("Failed to load version file: " + files.get(i) + ", Error: " + e.getMessage());
+                }
+            })).get();
+        } catch (ExecutionException e) {
+            System.err.println("Failed to load version files: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+
+        List<VersionInfo> versions = new ArrayList<>(files.size());
+        for (VersionInfo version : decoded) {
+            if (version != null) {
+                versions.add(version);
+            }
+        }
+        versions.sort(Comparator.comparing(VersionInfo::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return versions;
     }
 
+    // Versions written before the binary codec are still Java-serialized and are read as such.
     private VersionInfo loadVersionFile(File file) throws VCSException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new VCSException("Failed to load version from file: " + file.getName(), e);
+        }
+        if (VersionCodec.isEncoded(data)) {
+            return VersionCodec.decode(data);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
             Object obj = ois.readObject();
             if (obj instanceof VersionInfo) {
                 return (VersionInfo) obj;
@@ -58,23 +141,35 @@ public class VersionManager implements Versionable {
     }
 
     public String createVersion(String message, Map<String, String> fileHashes) throws VersionException {
+        return createVersion(message, fileHashes, false);
+    }
+
+    // Records only what changed since the current version, with a null hash for each removed path;
+    // SnapshotResolver rebuilds the full snapshot.
+    public String createDeltaVersion(String message, Map<String, String> changes) throws VersionException {
+        return createVersion(message, changes, !versionHistory.isEmpty());
+    }
+
+    private String createVersion(String message, Map<String, String> fileHashes, boolean delta)
+            throws VersionException {
         if (message == null) {
             throw new VersionException.InvalidVersionException("Version message cannot be null");
         }
 
         try {
-            VersionInfo version = new VersionInfo(message, System.getProperty("user.name"), new HashMap<>(fileHashes));
+            VersionInfo created = new VersionInfo(message, System.getProperty("user.name"), fileHashes);
+            // A full snapshot is stored as a tree and the journal record only names it. A delta is small and
+            // may hold removals, which a tree cannot express, so it stays in the record itself.
+            String treeHash = delta ? null : snapshotTree.write(created.getFileHashesView());
+            VersionInfo version = new VersionInfo(created.getVersionId(), message, created.getTimestamp(),
+                    created.getAuthor(), created.getFileHashesView(), treeHash, delta);
 
-            Path versionsDir = Paths.get(repositoryPath, ".vcs", "versions");
-            if (!Files.exists(versionsDir)) {
-                Files.createDirectories(versionsDir);
-            }
+            VersionJournal.Header header = journal.append(delta ? version : new VersionInfo(version.getVersionId(),
+                    message, version.getTimestamp(), version.getAuthor(), Map.of(), treeHash, false),
+                    version.getFileCount());
+            bodies.put(version.getVersionId(), version);
 
-            Path versionFile = versionsDir.resolve(version.getVersionId());
-            saveVersionToFile(version, versionFile.toFile());
-
-            versionHistory.add(version);
-            versionMap.put(version.getVersionId(), version);
+            addToHistory(new LazyVersionInfo(header, this::loadBody, this::loadMessage));
 
             return version.getVersionId();
         } catch (Exception e) {
@@ -82,11 +177,38 @@ public class VersionManager implements Versionable {
         }
     }
 
-    private void saveVersionToFile(VersionInfo version, File file) throws VCSException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
-            oos.writeObject(version);
-        } catch (IOException e) {
-            throw new VCSException("Failed to save version to file", e);
+    private VersionInfo loadBody(VersionJournal.Header header) {
+        String versionId = header.versionId();
+        VersionInfo body = bodies.get(versionId);
+        if (body == null) {
+            try {
+                body = journal.read(header);
+            } catch (FileOperationException e) {
+                throw new IllegalStateException("Failed to read version " + versionId + ": " + e.getMessage(), e);
+            }
+            if (body.getTreeHash() != null) {
+                try {
+                    body = new VersionInfo(versionId, body.getMessage(), body.getTimestamp(), body.getAuthor(),
+                            snapshotTree.read(body.getTreeHash()), body.getTreeHash(), body.isDelta());
+                } catch (VCSException e) {
+                    throw new IllegalStateException("Failed to read snapshot of " + versionId + ": " + e.getMessage(), e);
+                }
+            }
+            bodies.put(versionId, body);
+        }
+        return body;
+    }
+
+    // Uses the cached body when there is one, but never loads a file table just for the message.
+    private String loadMessage(VersionJournal.Header header) {
+        VersionInfo body = bodies.get(header.versionId());
+        if (body != null) {
+            return body.getMessage();
+        }
+        try {
+            return journal.readMessage(header);
+        } catch (FileOperationException e) {
+            throw new IllegalStateException("Failed to read version " + header.versionId() + ": " + e.getMessage(), e);
         }
     }
 
@@ -98,13 +220,23 @@ public class VersionManager implements Versionable {
         }
         Path versionsDir = Paths.get(repositoryPath, ".vcs", "versions");
         Path versionFile = versionsDir.resolve(versionId);
-        if (!Files.exists(versionFile)) {
+        if (!(version instanceof LazyVersionInfo) && !Files.exists(versionFile)) {
             throw new VersionException("Version file not found: " + versionId);
         }
     }
 
     public VersionInfo getVersion(String versionId) {
-        return versionMap.get(versionId);
+        int index = indexOf(versionId);
+        return index >= 0 ? versionHistory.get(index) : null;
+    }
+
+    int indexOf(String versionId) {
+        Integer index = versionIndex.get(versionId);
+        return index != null ? index : -1;
+    }
+
+    VersionInfo versionAt(int index) {
+        return versionHistory.get(index);
     }
 
     @Override
@@ -123,4 +255,20 @@ public class VersionManager implements Versionable {
     public String getRepositoryPath() {
         return repositoryPath;
     }
+
+    public ObjectStore getObjectStore() {
+        return objectStore;
+    }
+
+    public SnapshotTree getSnapshotTree() {
+        return snapshotTree;
+    }
+
+    public SnapshotResolver getSnapshotResolver() {
+        return snapshotResolver;
+    }
+
+    public VersionJournal getJournal() {
+        return journal;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package impl;
+
+import utils.IgnoreRules;
+import exceptions.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+class WorkingTreeWalker {
+    static final String REPOSITORY_DIR = ".vcs";
+
+    static List<Path> listFiles(Path root) throws FileOperationException {
+        return listFiles(root, root, IgnoreRules.empty());
+    }
+
+    // Ignore rules are relative to base (the repository root); ignored directories are pruned
+    // before they are entered, so their contents are never listed or stat'ed.
+    static List<Path> listFiles(Path root, Path base, IgnoreRules rules) throws FileOperationException {
+        List<Path> files = new ArrayList<>();
+        Path ruleBase = root.toAbsolutePath().normalize().startsWith(base.toAbsolutePath().normalize()) ? base : root;
+        if (!rules.isEmpty() && !ruleBase.equals(root) && rules.isIgnored(ruleBase, root, true)) {
+            return files;
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (dir.getFileName() != null && dir.getFileName().toString().equals(REPOSITORY_DIR)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    boolean ignored = !dir.equals(root) && !rules.isEmpty()
+                            && rules.matches(IgnoreRules.relativize(ruleBase, dir), true);
+                    return ignored ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()
+                            && (rules.isEmpty() || !rules.matches(IgnoreRules.relativize(ruleBase, file), false))) {
+                        files.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to walk working tree: " + root, e);
+        }
+        return files;
+    }
+}
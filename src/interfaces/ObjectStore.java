@@ -0,0 +1,21 @@
+package interfaces;
+
+import exceptions.VCSException;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+public interface ObjectStore {
+    String put(byte[] content) throws VCSException;
+    String put(Path file) throws VCSException;
+    byte[] get(String hash) throws VCSException;
+    InputStream open(String hash) throws VCSException;
+    boolean has(String hash);
+
+    // The returned stream may hold directory handles; close it when done.
+    Stream<String> list() throws VCSException;
+
+    default void flush() throws VCSException {
+    }
+}
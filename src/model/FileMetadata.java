@@ -7,6 +7,7 @@ import java.util.List;
 public class FileMetadata {
     private final String filePath;
     private String currentHash;
+    private String stagedHash;
     private LocalDateTime lastModified;
     private final List<String> versions;
     private FileStatus status;
@@ -35,6 +36,18 @@ public class FileMetadata {
         this.lastModified = LocalDateTime.now();
     }
 
+    public String getStagedHash() {
+        return stagedHash;
+    }
+
+    public void setStagedHash(String stagedHash) {
+        this.stagedHash = stagedHash;
+    }
+
+    public boolean isStaged() {
+        return stagedHash != null;
+    }
+
     public LocalDateTime getLastModified() {
         return lastModified;
     }
@@ -0,0 +1,23 @@
+package model;
+
+import java.util.List;
+
+public record Hunk(int oldStart, int oldEnd, List<String> newLines) {
+    public Hunk {
+        if (oldStart < 0 || oldEnd < oldStart) {
+            throw new IllegalArgumentException("Invalid line range: oldStart must be non-negative and ≤ oldEnd.");
+        }
+        if (newLines == null) {
+            throw new IllegalArgumentException("Replacement lines cannot be null.");
+        }
+        newLines = List.copyOf(newLines);
+    }
+
+    public boolean overlaps(Hunk other) {
+        return oldStart <= other.oldEnd && other.oldStart <= oldEnd;
+    }
+
+    public int lineDelta() {
+        return newLines.size() - (oldEnd - oldStart);
+    }
+}
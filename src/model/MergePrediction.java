@@ -0,0 +1,50 @@
+package model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public record MergePrediction(String sourceVersion, String targetVersion, Map<String, Outcome> outcomes) {
+    public enum Outcome {
+        UNCHANGED,
+        SOURCE_ONLY,
+        TARGET_ONLY,
+        IDENTICAL,
+        AUTO_MERGEABLE,
+        CONFLICT
+    }
+
+    public MergePrediction(String sourceVersion, String targetVersion, Map<String, Outcome> outcomes) {
+        this.sourceVersion = sourceVersion;
+        this.targetVersion = targetVersion;
+        this.outcomes = new HashMap<>(outcomes);
+    }
+
+    @Override
+    public Map<String, Outcome> outcomes() {
+        return Collections.unmodifiableMap(outcomes);
+    }
+
+    public Outcome getOutcome(String filePath) {
+        return outcomes.getOrDefault(filePath, Outcome.UNCHANGED);
+    }
+
+    public List<String> getConflictingPaths() {
+        return outcomes.entrySet().stream()
+                .filter(entry -> entry.getValue() == Outcome.CONFLICT)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    public boolean hasConflicts() {
+        return outcomes.containsValue(Outcome.CONFLICT);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MergePrediction{sourceVersion='%s', targetVersion='%s', files=%d, conflicts=%d}",
+                sourceVersion, targetVersion, outcomes.size(), getConflictingPaths().size());
+    }
+}
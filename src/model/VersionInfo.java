@@ -1,5 +1,6 @@
 package model;
 
+import utils.PersistentHashMap;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
@@ -16,13 +17,39 @@ public class VersionInfo implements Serializable {
     private final LocalDateTime timestamp;
     private final String author;
     private final Map<String, String> fileHashes;
+    private final String treeHash;
+    private final boolean delta;
 
     public VersionInfo(String message, String author, Map<String, String> fileHashes) {
         this.versionId = UUID.randomUUID().toString();
         this.message = message;
         this.timestamp = LocalDateTime.now();
         this.author = author;
-        this.fileHashes = new HashMap<>(fileHashes);
+        this.fileHashes = PersistentHashMap.copyOf(fileHashes);
+        this.treeHash = null;
+        this.delta = false;
+    }
+
+    public VersionInfo(String versionId, String message, LocalDateTime timestamp, String author,
+                       Map<String, String> fileHashes) {
+        this(versionId, message, timestamp, author, fileHashes, null);
+    }
+
+    public VersionInfo(String versionId, String message, LocalDateTime timestamp, String author,
+                       Map<String, String> fileHashes, String treeHash) {
+        this(versionId, message, timestamp, author, fileHashes, treeHash, false);
+    }
+
+    // A delta version lists only the files that changed since the previous version; a null hash marks a removal.
+    public VersionInfo(String versionId, String message, LocalDateTime timestamp, String author,
+                       Map<String, String> fileHashes, String treeHash, boolean delta) {
+        this.versionId = versionId;
+        this.message = message;
+        this.timestamp = timestamp;
+        this.author = author;
+        this.fileHashes = PersistentHashMap.copyOf(fileHashes);
+        this.treeHash = treeHash;
+        this.delta = delta;
     }
 
     public String getVersionId() {
@@ -45,9 +72,35 @@ public class VersionInfo implements Serializable {
         return new HashMap<>(fileHashes);
     }
 
+    // Read-only and shared with this version; derive a new map with plus/plusAll instead of copying.
+    public PersistentHashMap<String, String> getFileHashesView() {
+        return (PersistentHashMap<String, String>) fileHashes;
+    }
+
+    public int getFileCount() {
+        return fileHashes.size();
+    }
+
+    public String getTreeHash() {
+        return treeHash;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    // Versions serialized before file tables were persistent maps carry a HashMap.
+    @Serial
+    private Object readResolve() {
+        if (fileHashes instanceof PersistentHashMap) {
+            return this;
+        }
+        return new VersionInfo(versionId, message, timestamp, author, fileHashes, treeHash, delta);
+    }
+
     @Override
     public String toString() {
         return String.format("Version[id=%s, message='%s', author='%s', files=%d]",
-                versionId, message, author, fileHashes.size());
+                getVersionId(), getMessage(), getAuthor(), getFileCount());
     }
 }
\ No newline at end of file
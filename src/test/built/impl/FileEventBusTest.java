@@ -0,0 +1,131 @@
+package test.built.impl;
+
+import impl.FileEventBus;
+import impl.FileEventBus.BackpressurePolicy;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileEventBusTest {
+    private final List<FileEventBus> buses = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        buses.forEach(FileEventBus::close);
+    }
+
+    @Test
+    void testPerEventListenersRunSynchronously() {
+        List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+        List<String> seen = new ArrayList<>();
+        listeners.add(seen::add);
+        FileEventBus bus = bus(listeners, 16, BackpressurePolicy.BLOCK);
+
+        bus.publish("a.txt");
+        bus.publishAll(List.of("b.txt", "c.txt"));
+        assertEquals(List.of("a.txt", "b.txt", "c.txt"), seen);
+    }
+
+    @Test
+    void testBatchListenersReceiveEveryEventInOrder() throws Exception {
+        FileEventBus bus = bus(new CopyOnWriteArrayList<>(), 1024, BackpressurePolicy.BLOCK);
+        List<String> received = new CopyOnWriteArrayList<>();
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        bus.addBatchListener(batch -> {
+            batchSizes.add(batch.size());
+            received.addAll(batch);
+        });
+
+        List<String> published = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            published.add("file" + i);
+        }
+        bus.publishAll(published);
+
+        assertTrue(bus.awaitIdle(10, TimeUnit.SECONDS));
+        assertEquals(published, received);
+        assertTrue(batchSizes.size() < published.size());
+        assertEquals(0, bus.getDroppedCount());
+    }
+
+    @Test
+    void testSlowBatchListenerDoesNotStallPublisher() throws Exception {
+        FileEventBus bus = bus(new CopyOnWriteArrayList<>(), 4, BackpressurePolicy.DROP_NEWEST);
+        CountDownLatch release = new CountDownLatch(1);
+        bus.addBatchListener(batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i < 100; i++) {
+            bus.publish("file" + i);
+        }
+        assertTrue(bus.getDroppedCount() > 0);
+        release.countDown();
+        assertTrue(bus.awaitIdle(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCallerRunsWhenQueueIsFull() throws Exception {
+        FileEventBus bus = bus(new CopyOnWriteArrayList<>(), 1, BackpressurePolicy.CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        Set<String> callerThreadEvents = ConcurrentHashMap.newKeySet();
+        Thread caller = Thread.currentThread();
+        bus.addBatchListener(batch -> {
+            if (Thread.currentThread() == caller) {
+                callerThreadEvents.addAll(batch);
+                return;
+            }
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i < 20; i++) {
+            bus.publish("file" + i);
+        }
+        assertFalse(callerThreadEvents.isEmpty());
+        release.countDown();
+        assertTrue(bus.awaitIdle(10, TimeUnit.SECONDS));
+        assertEquals(0, bus.getDroppedCount());
+    }
+
+    @Test
+    void testFailingBatchListenerDoesNotBlockOthers() throws Exception {
+        FileEventBus bus = bus(new CopyOnWriteArrayList<>(), 16, BackpressurePolicy.BLOCK);
+        List<String> received = new CopyOnWriteArrayList<>();
+        bus.addBatchListener(batch -> {
+            throw new IllegalStateException("boom");
+        });
+        bus.addBatchListener(received::addAll);
+
+        bus.publish("a.txt");
+        bus.publish("b.txt");
+        assertTrue(bus.awaitIdle(10, TimeUnit.SECONDS));
+        assertEquals(List.of("a.txt", "b.txt"), received);
+    }
+
+    @Test
+    void testConcurrentListenerRegistrationDuringPublish() throws Exception {
+        List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+        FileEventBus bus = bus(listeners, 16, BackpressurePolicy.BLOCK);
+        listeners.add(path -> listeners.add(ignored -> { }));
+        assertDoesNotThrow(() -> bus.publish("a.txt"));
+        assertEquals(2, listeners.size());
+    }
+
+    private FileEventBus bus(List<Consumer<String>> listeners, int capacity, BackpressurePolicy policy) {
+        FileEventBus bus = new FileEventBus(listeners, capacity, policy);
+        buses.add(bus);
+        return bus;
+    }
+}
@@ -9,7 +9,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
-import java.util.List;
+import java.util.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 class FileTrackerTest {
@@ -132,6 +132,70 @@ class FileTrackerTest {
         assertTrue(metadata.getVersions().contains(versionId));
     }
 
+    @Test
+    void testTrackFilesInBatch() throws Exception {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            files.add(createTestFile("batch" + i + ".txt", "batch content " + i));
+        }
+        List<String> events = new ArrayList<>();
+        fileTracker.addFileChangeListener(events::add);
+
+        Map<String, String> tracked = fileTracker.trackFiles(files);
+        assertEquals(20, tracked.size());
+        assertEquals(20, events.size());
+        for (File file : files) {
+            assertEquals(tracked.get(file.getPath()), fileTracker.getFileHash(file.getPath()));
+            assertEquals(FileStatus.TRACKED, fileTracker.getFileMetadata(file.getPath()).getStatus());
+        }
+
+        long stored = fileTracker.getIngestPipeline().getStoredCount();
+        fileTracker.trackFiles(files);
+        assertEquals(stored, fileTracker.getIngestPipeline().getStoredCount());
+    }
+
+    @Test
+    void testScanStatusCoversTrackedAndUntrackedFiles() throws Exception {
+        File clean = createTestFile("clean.txt", "clean");
+        File edited = createTestFile("edited.txt", "before");
+        File removed = createTestFile("removed.txt", "gone");
+        fileTracker.trackFiles(List.of(clean, edited, removed));
+
+        Files.writeString(edited.toPath(), "after!");
+        Files.delete(removed.toPath());
+        File untracked = createTestFile("untracked.txt", "new");
+
+        Map<String, FileStatus> statuses = fileTracker.scanStatus();
+        assertEquals(FileStatus.TRACKED, statuses.get(clean.getPath()));
+        assertEquals(FileStatus.MODIFIED, statuses.get(edited.getPath()));
+        assertEquals(FileStatus.DELETED, statuses.get(removed.getPath()));
+        assertEquals(FileStatus.UNTRACKED, statuses.get(untracked.getPath()));
+        assertEquals(4, statuses.size());
+        assertEquals(3, fileTracker.scanStatus(false).size());
+    }
+
+    @Test
+    void testScanStatusNoticesDirectoryChanges() throws Exception {
+        File tracked = createTestFile("tracked.txt", "tracked");
+        fileTracker.trackFile(tracked);
+        Path nested = Files.createDirectories(tempDir.resolve("nested"));
+        Files.writeString(nested.resolve("one.txt"), "one");
+        assertEquals(2, fileTracker.scanStatus().size());
+
+        Files.writeString(nested.resolve("two.log"), "two");
+        Map<String, FileStatus> statuses = fileTracker.scanStatus();
+        assertEquals(FileStatus.UNTRACKED, statuses.get(nested.resolve("two.log").toString()));
+        assertEquals(3, statuses.size());
+
+        Files.writeString(tempDir.resolve(".vcsignore"), "*.log\n");
+        statuses = fileTracker.scanStatus();
+        assertNull(statuses.get(nested.resolve("two.log").toString()));
+        assertEquals(FileStatus.UNTRACKED, statuses.get(tempDir.resolve(".vcsignore").toString()));
+
+        Files.delete(nested.resolve("one.txt"));
+        assertNull(fileTracker.scanStatus().get(nested.resolve("one.txt").toString()));
+    }
+
     private File createTestFile(String name, String content) throws Exception {
         File file = new File(tempDir.toFile(), name);
         Files.writeString(file.toPath(), content);
@@ -0,0 +1,119 @@
+package test.built.impl;
+
+import impl.FileTracker;
+import impl.FileWatcher;
+import model.FileStatus;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileWatcherTest {
+    private FileTracker fileTracker;
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fileTracker = new FileTracker(tempDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fileTracker.stopWatching();
+    }
+
+    @Test
+    void testBurstOfWritesIsCoalesced() throws Exception {
+        File file = createTestFile("watched.txt", "v0");
+        fileTracker.trackFile(file);
+        List<String> events = new CopyOnWriteArrayList<>();
+        fileTracker.addFileChangeListener(events::add);
+        fileTracker.startWatching(300);
+
+        for (int i = 1; i <= 5; i++) {
+            Files.writeString(file.toPath(), "version " + i);
+        }
+
+        awaitTrue(() -> !events.isEmpty());
+        Thread.sleep(500);
+        assertEquals(List.of(file.getPath()), events);
+        assertEquals(FileStatus.MODIFIED, fileTracker.getFileMetadata(file.getPath()).getStatus());
+    }
+
+    @Test
+    void testGetFileStatusesVerifiesDirtySetImmediately() throws Exception {
+        File file = createTestFile("watched.txt", "before");
+        File other = createTestFile("other.txt", "other");
+        fileTracker.trackFile(file);
+        fileTracker.trackFile(other);
+        FileWatcher watcher = fileTracker.startWatching(60_000);
+
+        Files.writeString(file.toPath(), "after");
+        awaitTrue(() -> !watcher.getDirtyFiles().isEmpty());
+        assertEquals(Set.of(file.getPath()), watcher.getDirtyFiles());
+
+        Map<String, FileStatus> statuses = fileTracker.getFileStatuses();
+        assertEquals(FileStatus.MODIFIED, statuses.get(file.getPath()));
+        assertEquals(FileStatus.TRACKED, statuses.get(other.getPath()));
+        assertTrue(watcher.getDirtyFiles().isEmpty());
+    }
+
+    @Test
+    void testFilesTrackedAfterStartAreWatched() throws Exception {
+        FileWatcher watcher = fileTracker.startWatching(60_000);
+        Files.createDirectories(tempDir.resolve("nested"));
+        File file = createTestFile("nested/late.txt", "late");
+        fileTracker.trackFile(file);
+
+        Files.delete(file.toPath());
+        awaitTrue(() -> watcher.getDirtyFiles().contains(file.getPath()));
+        assertEquals(FileStatus.DELETED, fileTracker.getFileStatuses().get(file.getPath()));
+    }
+
+    @Test
+    void testUntrackedFilesStopReportingEvents() throws Exception {
+        File file = createTestFile("dropped.txt", "before");
+        File other = createTestFile("kept.txt", "before");
+        fileTracker.trackFile(file);
+        fileTracker.trackFile(other);
+        FileWatcher watcher = fileTracker.startWatching(60_000);
+        fileTracker.untrackFile(file.getPath());
+
+        Files.writeString(file.toPath(), "after");
+        Files.writeString(other.toPath(), "after");
+        awaitTrue(() -> watcher.getDirtyFiles().contains(other.getPath()));
+        assertEquals(Set.of(other.getPath()), watcher.getDirtyFiles());
+    }
+
+    @Test
+    void testStopWatchingIsIdempotent() throws Exception {
+        assertSame(fileTracker.startWatching(), fileTracker.startWatching());
+        fileTracker.stopWatching();
+        assertNull(fileTracker.getWatcher());
+        fileTracker.stopWatching();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for watch events");
+            Thread.sleep(20);
+        }
+    }
+
+    private File createTestFile(String name, String content) throws Exception {
+        File file = new File(tempDir.toFile(), name);
+        Files.writeString(file.toPath(), content);
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        return file;
+    }
+}
@@ -0,0 +1,104 @@
+package test.built.impl;
+
+import impl.IngestPipeline;
+import impl.InMemoryObjectStore;
+import impl.LooseObjectStore;
+import exceptions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import utils.HashUtils;
+import utils.ObjectPaths;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestPipelineTest {
+    private IngestPipeline pipeline;
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new IngestPipeline(new LooseObjectStore(tempDir.toString()), 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.close();
+    }
+
+    @Test
+    void testIngestStoresObjectOnce() throws Exception {
+        Path file = write("a.txt", "alpha");
+        String hash = pipeline.ingest(file);
+        assertEquals(HashUtils.calculateFileHash(file.toFile()), hash);
+        assertEquals("alpha", new String(pipeline.getObjectStore().get(hash), StandardCharsets.UTF_8));
+        assertEquals(1, pipeline.getStoredCount());
+    }
+
+    @Test
+    void testExpectedHashSkipsStore() throws Exception {
+        Path file = write("a.txt", "alpha");
+        String hash = pipeline.ingest(file);
+        Path object = ObjectPaths.locate(tempDir.toString(), hash);
+        FileTime written = Files.getLastModifiedTime(object);
+        Files.setLastModifiedTime(object, FileTime.fromMillis(written.toMillis() - 10_000));
+
+        assertEquals(hash, pipeline.ingest(file, hash));
+        assertEquals(1, pipeline.getStoredCount());
+        assertEquals(1, pipeline.getSkippedCount());
+        assertEquals(written.toMillis() - 10_000, Files.getLastModifiedTime(object).toMillis());
+    }
+
+    @Test
+    void testChangedFileIsStoredDespiteExpectedHash() throws Exception {
+        Path file = write("a.txt", "alpha");
+        String old = pipeline.ingest(file);
+        Files.writeString(file, "beta");
+
+        String updated = pipeline.ingest(file, old);
+        assertNotEquals(old, updated);
+        assertEquals("beta", new String(pipeline.getObjectStore().get(updated), StandardCharsets.UTF_8));
+        assertEquals(2, pipeline.getStoredCount());
+    }
+
+    @Test
+    void testBatchIngestKeepsInputOrder() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            files.add(write("file" + i + ".txt", "content " + (i % 10)));
+        }
+
+        Map<Path, String> hashes = pipeline.ingestAll(files);
+        assertEquals(files, new ArrayList<>(hashes.keySet()));
+        for (Path file : files) {
+            assertEquals(HashUtils.calculateFileHash(file.toFile()), hashes.get(file));
+        }
+        try (Stream<String> objects = pipeline.getObjectStore().list()) {
+            assertEquals(10, objects.count());
+        }
+
+        pipeline.ingestAll(files, hashes);
+        assertEquals(100, pipeline.getStoredCount());
+        assertEquals(100, pipeline.getSkippedCount());
+    }
+
+    @Test
+    void testBatchIngestPropagatesMissingFile() {
+        IngestPipeline memory = new IngestPipeline(new InMemoryObjectStore());
+        assertThrows(FileOperationException.FileNotFoundException.class,
+                () -> memory.ingestAll(List.of(tempDir.resolve("missing.txt"))));
+    }
+
+    private Path write(String name, String content) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file;
+    }
+}
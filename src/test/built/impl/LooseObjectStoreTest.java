@@ -0,0 +1,152 @@
+package test.built.impl;
+
+import impl.LooseObjectStore;
+import exceptions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import utils.CompressionUtils;
+import utils.HashUtils;
+import utils.ObjectPaths;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LooseObjectStoreTest {
+    private LooseObjectStore store;
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        store = new LooseObjectStore(tempDir.toString());
+    }
+
+    @Test
+    void testReadsLegacyFlatObjects() throws Exception {
+        byte[] content = "legacy".getBytes(StandardCharsets.UTF_8);
+        String hash = HashUtils.calculateBytesHash(content);
+        Files.createDirectories(ObjectPaths.objectsDir(tempDir.toString()));
+        Files.write(ObjectPaths.objectsDir(tempDir.toString()).resolve(hash), content);
+
+        assertTrue(store.has(hash));
+        assertArrayEquals(content, store.get(hash));
+    }
+
+    @Test
+    void testRepackMovesLooseObjectsIntoPack() throws Exception {
+        Map<String, String> stored = new HashMap<>();
+        for (int i = 0; i < 25; i++) {
+            String content = "content " + i;
+            stored.put(store.put(content.getBytes(StandardCharsets.UTF_8)), content);
+        }
+
+        assertEquals(25, store.repack());
+        for (Map.Entry<String, String> entry : stored.entrySet()) {
+            assertFalse(Files.exists(ObjectPaths.resolve(tempDir.toString(), entry.getKey())));
+            assertTrue(store.has(entry.getKey()));
+            assertEquals(entry.getValue(), new String(store.get(entry.getKey()), StandardCharsets.UTF_8));
+        }
+        try (Stream<String> listed = store.list()) {
+            assertEquals(stored.keySet(), new HashSet<>(listed.toList()));
+        }
+    }
+
+    @Test
+    void testPackedObjectsVisibleToOtherStores() throws Exception {
+        String hash = store.put("shared".getBytes(StandardCharsets.UTF_8));
+        LooseObjectStore other = new LooseObjectStore(tempDir.toString());
+        assertTrue(other.has(hash));
+
+        store.repack();
+        assertTrue(other.has(hash));
+        assertEquals("shared", new String(other.get(hash), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testRepackInBackground() throws Exception {
+        String hash = store.put("background".getBytes(StandardCharsets.UTF_8));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(1, store.repackInBackground(executor).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals("background", new String(store.get(hash), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testTextObjectsAreCompressed() throws Exception {
+        String content = "SELECT * FROM versions WHERE id = ?;\n".repeat(500);
+        Path file = tempDir.resolve("schema.sql");
+        Files.writeString(file, content);
+
+        String fromBytes = store.put(content.getBytes(StandardCharsets.UTF_8));
+        Files.delete(ObjectPaths.resolve(tempDir.toString(), fromBytes));
+        String fromFile = store.put(file);
+        assertEquals(fromBytes, fromFile);
+
+        assertTrue(Files.size(ObjectPaths.resolve(tempDir.toString(), fromFile)) * 5 < content.length());
+        assertEquals(content, new String(store.get(fromFile), StandardCharsets.UTF_8));
+        try (InputStream in = store.open(fromFile)) {
+            assertEquals(content, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testIncompressibleObjectsStoredRaw() throws Exception {
+        byte[] content = new byte[8192];
+        new Random(3).nextBytes(content);
+        Path file = tempDir.resolve("random.bin");
+        Files.write(file, content);
+
+        String hash = store.put(file);
+        long stored = Files.size(ObjectPaths.resolve(tempDir.toString(), hash));
+        assertTrue(stored <= content.length + CompressionUtils.HEADER_LENGTH);
+        assertArrayEquals(content, store.get(hash));
+        try (InputStream in = store.open(hash)) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testStreamingHashMatchesInMemoryHash() throws Exception {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ("abcdefgh\n".charAt(i % 9));
+        }
+        Path file = tempDir.resolve("large.txt");
+        Files.write(file, content);
+
+        String expected = HashUtils.calculateBytesHash(content);
+        assertEquals(expected, HashUtils.calculateFileHash(file.toFile()));
+        assertEquals(expected, store.put(file));
+        assertEquals(expected, store.put(file));
+        assertArrayEquals(content, store.get(expected));
+        try (Stream<Path> leftovers = Files.list(ObjectPaths.objectsDir(tempDir.toString()))) {
+            assertTrue(leftovers.noneMatch(path -> path.getFileName().toString().startsWith("tmp-")));
+        }
+    }
+
+    @Test
+    void testUncompressedStoreWritesRawObjects() throws Exception {
+        LooseObjectStore raw = new LooseObjectStore(tempDir.toString(), false);
+        byte[] content = "plain ".repeat(100).getBytes(StandardCharsets.UTF_8);
+        String hash = raw.put(content);
+        assertArrayEquals(content, Files.readAllBytes(ObjectPaths.resolve(tempDir.toString(), hash)));
+        assertArrayEquals(content, store.get(hash));
+    }
+
+    @Test
+    void testMissingObject() {
+        assertThrows(FileOperationException.class, () -> store.get("0".repeat(64)));
+    }
+}
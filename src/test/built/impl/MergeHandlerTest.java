@@ -170,6 +170,82 @@ class MergeHandlerTest {
         assertFalse(mergeHandler.getConflicts().isEmpty());
     }
 
+    @Test
+    void testPredictMergeClassifiesByHash() throws Exception {
+        String unchanged = tempDir.resolve("unchanged.txt").toString();
+        String sourceOnly = tempDir.resolve("source.txt").toString();
+        String targetOnly = tempDir.resolve("target.txt").toString();
+        String common = storeFile("common.txt", "common");
+
+        String baseVersion = createVersion("Base", Map.of(
+                unchanged, common,
+                sourceOnly, storeFile("source.txt", "base source"),
+                targetOnly, storeFile("target.txt", "base target")));
+        String sourceVersion = createVersion("Source", Map.of(
+                unchanged, common,
+                sourceOnly, storeFile("source.txt", "changed source"),
+                targetOnly, storeFile("target.txt", "base target")));
+        String targetVersion = createVersion("Target", Map.of(
+                unchanged, common,
+                sourceOnly, storeFile("source.txt", "base source"),
+                targetOnly, storeFile("target.txt", "changed target")));
+
+        MergePrediction prediction = mergeHandler.predictMerge(baseVersion, sourceVersion, targetVersion);
+        assertFalse(prediction.hasConflicts());
+        assertEquals(MergePrediction.Outcome.UNCHANGED, prediction.getOutcome(unchanged));
+        assertEquals(MergePrediction.Outcome.SOURCE_ONLY, prediction.getOutcome(sourceOnly));
+        assertEquals(MergePrediction.Outcome.TARGET_ONLY, prediction.getOutcome(targetOnly));
+    }
+
+    @Test
+    void testPredictMergeDisjointEditsAreAutoMergeable() throws Exception {
+        String filePath = tempDir.resolve("test.txt").toString();
+        String baseVersion = createVersion("Base", Map.of(filePath,
+                storeFile("test.txt", "one\ntwo\nthree\nfour\nfive")));
+        String sourceVersion = createVersion("Source", Map.of(filePath,
+                storeFile("test.txt", "ONE\ntwo\nthree\nfour\nfive")));
+        String targetVersion = createVersion("Target", Map.of(filePath,
+                storeFile("test.txt", "one\ntwo\nthree\nfour\nFIVE")));
+
+        MergePrediction prediction = mergeHandler.predictMerge(baseVersion, sourceVersion, targetVersion);
+        assertEquals(MergePrediction.Outcome.AUTO_MERGEABLE, prediction.getOutcome(filePath));
+        assertFalse(prediction.hasConflicts());
+    }
+
+    @Test
+    void testPredictMergeOverlappingEditsConflict() throws Exception {
+        String filePath = tempDir.resolve("test.txt").toString();
+        String baseVersion = createVersion("Base", Map.of(filePath,
+                storeFile("test.txt", "one\ntwo\nthree")));
+        String sourceVersion = createVersion("Source", Map.of(filePath,
+                storeFile("test.txt", "one\nsource\nthree")));
+        String targetVersion = createVersion("Target", Map.of(filePath,
+                storeFile("test.txt", "one\ntarget\nthree")));
+
+        MergePrediction prediction = mergeHandler.predictMerge(baseVersion, sourceVersion, targetVersion);
+        assertTrue(prediction.hasConflicts());
+        assertEquals(List.of(filePath), prediction.getConflictingPaths());
+    }
+
+    @Test
+    void testPredictMergeDoesNotTouchConflictState() throws Exception {
+        setupConflictScenario();
+        int conflicts = mergeHandler.getConflicts().size();
+
+        String filePath = tempDir.resolve("test.txt").toString();
+        String v1 = createVersion("v1", Map.of(filePath, storeFile("test.txt", "a")));
+        String v2 = createVersion("v2", Map.of(filePath, storeFile("test.txt", "b")));
+
+        assertTrue(mergeHandler.predictMerge(v1, v2).hasConflicts());
+        assertEquals(conflicts, mergeHandler.getConflicts().size());
+    }
+
+    @Test
+    void testPredictMergeWithInvalidVersions() {
+        assertThrows(VersionException.class,
+                () -> mergeHandler.predictMerge("nonexistent1", "nonexistent2", "nonexistent3"));
+    }
+
     private String createVersion(String message, Map<String, String> fileHashes) throws Exception {
         return versionManager.createVersion(message, fileHashes);
     }
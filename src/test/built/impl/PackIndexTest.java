@@ -0,0 +1,70 @@
+package test.built.impl;
+
+import impl.PackIndex;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import utils.HashUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackIndexTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFindEveryEntry() throws Exception {
+        SortedMap<String, Long> offsets = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            offsets.put(HashUtils.calculateStringHash("object " + i), (long) i * 100);
+        }
+        Path idxFile = tempDir.resolve("test.idx");
+        PackIndex.write(idxFile, offsets);
+
+        PackIndex index = PackIndex.open(idxFile);
+        assertEquals(1000, index.size());
+        for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+            assertEquals(entry.getValue(), index.find(entry.getKey()));
+        }
+    }
+
+    @Test
+    void testMissingHashes() throws Exception {
+        SortedMap<String, Long> offsets = new TreeMap<>();
+        offsets.put("00" + "1".repeat(62), 12L);
+        offsets.put("ff" + "2".repeat(62), 24L);
+        Path idxFile = tempDir.resolve("edges.idx");
+        PackIndex.write(idxFile, offsets);
+
+        PackIndex index = PackIndex.open(idxFile);
+        assertEquals(12L, index.find("00" + "1".repeat(62)));
+        assertEquals(24L, index.find("ff" + "2".repeat(62)));
+        assertEquals(-1, index.find("00" + "0".repeat(62)));
+        assertEquals(-1, index.find("80" + "0".repeat(62)));
+        assertEquals(-1, index.find("not-a-hash"));
+        assertFalse(index.contains("abc"));
+    }
+
+    @Test
+    void testHashesAreListedInOrder() throws Exception {
+        SortedMap<String, Long> offsets = new TreeMap<>();
+        for (int i = 0; i < 20; i++) {
+            offsets.put(HashUtils.calculateStringHash("h" + i), (long) i);
+        }
+        Path idxFile = tempDir.resolve("order.idx");
+        PackIndex.write(idxFile, offsets);
+
+        assertEquals(new ArrayList<>(offsets.keySet()), PackIndex.open(idxFile).hashes().toList());
+    }
+
+    @Test
+    void testRejectsForeignFile() throws Exception {
+        Path bogus = tempDir.resolve("bogus.idx");
+        Files.write(bogus, new byte[2048]);
+        assertThrows(IOException.class, () -> PackIndex.open(bogus));
+    }
+}
@@ -0,0 +1,165 @@
+package test.built.impl;
+
+import impl.PackedObjectStore;
+import utils.DeltaCodec;
+import exceptions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedObjectStoreTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testPendingObjectsAreReadableBeforeFlush() throws Exception {
+        PackedObjectStore store = new PackedObjectStore(tempDir.toString());
+        String hash = store.put(bytes("pending"));
+        assertEquals("pending", text(store.get(hash)));
+        assertEquals(0, store.getPackCount());
+    }
+
+    @Test
+    void testFlushWritesPackVisibleToNewStore() throws Exception {
+        PackedObjectStore store = new PackedObjectStore(tempDir.toString());
+        Map<String, String> stored = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            String content = "object " + i;
+            stored.put(store.put(bytes(content)), content);
+        }
+        store.flush();
+        assertEquals(1, store.getPackCount());
+
+        PackedObjectStore reopened = new PackedObjectStore(tempDir.toString());
+        for (Map.Entry<String, String> entry : stored.entrySet()) {
+            assertTrue(reopened.has(entry.getKey()));
+            assertEquals(entry.getValue(), text(reopened.get(entry.getKey())));
+        }
+    }
+
+    @Test
+    void testLargeBatchRollsOverToNewPacks() throws Exception {
+        PackedObjectStore store = new PackedObjectStore(tempDir.toString(), Long.MAX_VALUE, 64);
+        Map<String, String> stored = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            String content = "object number " + i;
+            stored.put(store.put(bytes(content)), content);
+        }
+        store.flush();
+        assertEquals(5, store.getPackCount());
+
+        PackedObjectStore reopened = new PackedObjectStore(tempDir.toString());
+        for (Map.Entry<String, String> entry : stored.entrySet()) {
+            assertEquals(entry.getValue(), text(reopened.get(entry.getKey())));
+        }
+    }
+
+    @Test
+    void testPutFileMatchesPutBytes() throws Exception {
+        PackedObjectStore store = new PackedObjectStore(tempDir.toString());
+        String hash = store.put(bytes("same content"));
+        store.flush();
+
+        Path file = Files.writeString(tempDir.resolve("same.txt"), "same content");
+        assertEquals(hash, store.put(file));
+        Path other = Files.writeString(tempDir.resolve("other.txt"), "other content");
+        assertEquals("other content", text(store.get(store.put(other))));
+        assertEquals(1, store.getPackCount());
+    }
+
+    @Test
+    void testThresholdTriggersFlush() throws Exception {
+        PackedObjectStore store = new PackedObjectStore(tempDir.toString(), 16);
+        store.put(bytes("0123456789"));
+        assertEquals(0, store.getPackCount());
+        store.put(bytes("abcdefghij"));
+        assertEquals(1, store.getPackCount());
+    }
+
+    @Test
+    void testFlushWithoutPendingObjects() throws Exception {
+        PackedObjectStore store = new PackedObjectStore(tempDir.toString());
+        store.flush();
+        assertEquals(0, store.getPackCount());
+    }
+
+    @Test
+    void testSimilarVersionsAreStoredAsDeltas() throws Exception {
+        PackedObjectStore store = new PackedObjectStore(tempDir.toString());
+        List<String> hashes = new ArrayList<>();
+        List<String> versions = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        for (int line = 0; line < 2000; line++) {
+            content.append("column_").append(line).append(" VARCHAR(255) NOT NULL,\n");
+        }
+        for (int i = 0; i < 30; i++) {
+            content.append("column_extra_").append(i).append(" INT,\n");
+            versions.add(content.toString());
+            hashes.add(store.put(bytes(content.toString())));
+            store.flush();
+        }
+
+        long fullSize = versions.stream().mapToLong(String::length).sum();
+        assertTrue(packBytes() * 10 < fullSize, "packs should be an order of magnitude smaller");
+
+        PackedObjectStore reopened = new PackedObjectStore(tempDir.toString());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(versions.get(i), text(reopened.get(hashes.get(i))));
+            try (var in = reopened.open(hashes.get(i))) {
+                assertEquals(versions.get(i), text(in.readAllBytes()));
+            }
+            assertTrue(reopened.getDeltaChainDepth(hashes.get(i)) <= 16);
+        }
+        assertTrue(reopened.getDeltaChainDepth(hashes.getLast()) > 0);
+    }
+
+    @Test
+    void testUnrelatedObjectsStayFull() throws Exception {
+        PackedObjectStore store = new PackedObjectStore(tempDir.toString());
+        Random random = new Random(7);
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            byte[] content = new byte[4096];
+            random.nextBytes(content);
+            hashes.add(store.put(content));
+        }
+        store.flush();
+        for (String hash : hashes) {
+            assertEquals(0, store.getDeltaChainDepth(hash));
+        }
+    }
+
+    @Test
+    void testDeltaCodecRoundTrip() throws Exception {
+        byte[] base = bytes("The quick brown fox jumps over the lazy dog. ".repeat(20));
+        byte[] target = bytes("The quick brown fox jumps over the lazy dog. ".repeat(10)
+                + "A new sentence appears. " + "The quick brown fox jumps over the lazy dog. ".repeat(9));
+        byte[] delta = DeltaCodec.encode(base, target);
+        assertTrue(delta.length < target.length / 2);
+        assertArrayEquals(target, DeltaCodec.apply(base, delta));
+        assertArrayEquals(new byte[0], DeltaCodec.apply(base, DeltaCodec.encode(base, new byte[0])));
+        assertThrows(FileOperationException.FileCorruptedException.class,
+                () -> DeltaCodec.apply(bytes("short"), delta));
+    }
+
+    private long packBytes() throws IOException {
+        try (var files = Files.walk(tempDir.resolve(".vcs"))) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] content) {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,206 @@
+package test.built.impl;
+
+import impl.RebaseEngine;
+import impl.VersionManager;
+import model.ConflictInfo;
+import model.VersionInfo;
+import exceptions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import utils.HashUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RebaseEngineTest {
+    private VersionManager versionManager;
+    private RebaseEngine rebaseEngine;
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.createDirectories(tempDir.resolve(".vcs").resolve("objects"));
+        versionManager = new VersionManager(tempDir.toString());
+        rebaseEngine = new RebaseEngine(versionManager);
+    }
+
+    @Test
+    void testCherryPickFastForwardsUntouchedFile() throws Exception {
+        String base = storeFile("a.txt", "base");
+        String changed = storeFile("a.txt", "changed");
+        String other = storeFile("b.txt", "other");
+
+        String v1 = versionManager.createVersion("base", Map.of("a.txt", base));
+        String v2 = versionManager.createVersion("change a", Map.of("a.txt", changed));
+        String onto = versionManager.createVersion("add b", Map.of("a.txt", base, "b.txt", other));
+
+        String picked = rebaseEngine.cherryPick(v2, onto);
+        VersionInfo result = versionManager.getVersion(picked);
+        assertEquals("change a", result.getMessage());
+        Map<String, String> snapshot = versionManager.getSnapshotResolver().resolve(picked);
+        assertEquals(changed, snapshot.get("a.txt"));
+        assertEquals(other, snapshot.get("b.txt"));
+        assertNotNull(v1);
+    }
+
+    @Test
+    void testCherryPickMergesDisjointEdits() throws Exception {
+        String base = storeFile("a.txt", "one\ntwo\nthree\nfour\nfive");
+        String theirs = storeFile("a.txt", "ONE\ntwo\nthree\nfour\nfive");
+        String ours = storeFile("a.txt", "one\ntwo\nthree\nfour\nFIVE");
+
+        versionManager.createVersion("base", Map.of("a.txt", base));
+        String pick = versionManager.createVersion("upper first", Map.of("a.txt", theirs));
+        String onto = versionManager.createVersion("upper last", Map.of("a.txt", ours));
+
+        String picked = rebaseEngine.cherryPick(pick, onto);
+        String mergedHash = versionManager.getSnapshotResolver().resolve(picked).get("a.txt");
+        assertEquals(HashUtils.calculateStringHash("ONE\ntwo\nthree\nfour\nFIVE"), mergedHash);
+        assertEquals("ONE\ntwo\nthree\nfour\nFIVE",
+                new String(versionManager.getObjectStore().get(mergedHash), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testCherryPickMergeKeepsLineEndings() throws Exception {
+        String base = storeFile("a.txt", "one\r\ntwo\r\nthree\r\nfour\r\nfive\r\n");
+        String theirs = storeFile("a.txt", "ONE\r\ntwo\r\nthree\r\nfour\r\nfive\r\n");
+        String ours = storeFile("a.txt", "one\r\ntwo\r\nthree\r\nfour\r\nFIVE\r\n");
+        String unixBase = storeFile("b.txt", "one\ntwo\nthree\nfour\nfive\n");
+        String unixTheirs = storeFile("b.txt", "ONE\ntwo\nthree\nfour\nfive");
+        String unixOurs = storeFile("b.txt", "one\ntwo\nthree\nfour\nFIVE\n");
+
+        versionManager.createVersion("base", Map.of("a.txt", base, "b.txt", unixBase));
+        String pick = versionManager.createVersion("upper first", Map.of("a.txt", theirs, "b.txt", unixTheirs));
+        String onto = versionManager.createVersion("upper last", Map.of("a.txt", ours, "b.txt", unixOurs));
+
+        Map<String, String> merged = versionManager.getSnapshotResolver().resolve(rebaseEngine.cherryPick(pick, onto));
+        assertEquals("ONE\r\ntwo\r\nthree\r\nfour\r\nFIVE\r\n",
+                new String(versionManager.getObjectStore().get(merged.get("a.txt")), StandardCharsets.UTF_8));
+        // The picked version dropped the final newline, so the merge does too.
+        assertEquals("ONE\ntwo\nthree\nfour\nFIVE",
+                new String(versionManager.getObjectStore().get(merged.get("b.txt")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testCherryPickConflict() throws Exception {
+        String base = storeFile("a.txt", "one\ntwo\nthree");
+        String theirs = storeFile("a.txt", "one\ntheirs\nthree");
+        String ours = storeFile("a.txt", "one\nours\nthree");
+
+        versionManager.createVersion("base", Map.of("a.txt", base));
+        String pick = versionManager.createVersion("theirs", Map.of("a.txt", theirs));
+        String onto = versionManager.createVersion("ours", Map.of("a.txt", ours));
+
+        MergeConflictException e = assertThrows(MergeConflictException.class,
+                () -> rebaseEngine.cherryPick(pick, onto));
+        assertEquals(1, e.getConflicts().size());
+        assertEquals("a.txt", e.getConflicts().getFirst().getFilePath());
+    }
+
+    @Test
+    void testRebaseStack() throws Exception {
+        String a0 = storeFile("a.txt", "a0");
+        String a1 = storeFile("a.txt", "a1");
+        String b1 = storeFile("b.txt", "b1");
+        String c0 = storeFile("c.txt", "c0");
+
+        versionManager.createVersion("base", Map.of("a.txt", a0));
+        String first = versionManager.createVersion("first", Map.of("a.txt", a1));
+        String second = versionManager.createVersion("second", Map.of("a.txt", a1, "b.txt", b1));
+        String onto = versionManager.createVersion("onto", Map.of("a.txt", a0, "c.txt", c0));
+
+        List<String> rebased = rebaseEngine.rebase(List.of(first, second), onto);
+        assertEquals(2, rebased.size());
+
+        Map<String, String> tip = versionManager.getSnapshotResolver().resolve(rebased.get(1));
+        assertEquals(Map.of("a.txt", a1, "b.txt", b1, "c.txt", c0), tip);
+        assertEquals("second", versionManager.getVersion(rebased.get(1)).getMessage());
+    }
+
+    @Test
+    void testCherryPickReplaysDeletion() throws Exception {
+        String a0 = storeFile("a.txt", "a0");
+        String b0 = storeFile("b.txt", "b0");
+        String c0 = storeFile("c.txt", "c0");
+
+        versionManager.createVersion("base", Map.of("a.txt", a0, "b.txt", b0));
+        String pick = versionManager.createVersion("drop b", Map.of("a.txt", a0));
+        String onto = versionManager.createVersion("add c", Map.of("a.txt", a0, "b.txt", b0, "c.txt", c0));
+
+        String picked = rebaseEngine.cherryPick(pick, onto);
+        assertEquals(Map.of("a.txt", a0, "c.txt", c0), versionManager.getSnapshotResolver().resolve(picked));
+    }
+
+    @Test
+    void testModifyDeleteConflictCarriesContent() throws Exception {
+        String base = storeFile("a.txt", "one\ntwo");
+        String ours = storeFile("a.txt", "one\nTWO");
+
+        versionManager.createVersion("base", Map.of("a.txt", base));
+        String pick = versionManager.createVersion("delete a", Map.of());
+        String onto = versionManager.createVersion("edit a", Map.of("a.txt", ours));
+
+        MergeConflictException e = assertThrows(MergeConflictException.class,
+                () -> rebaseEngine.cherryPick(pick, onto));
+        ConflictInfo.ConflictBlock block = e.getConflicts().getFirst().getConflicts().getFirst();
+        assertEquals("one\nTWO", block.sourceContent());
+        assertEquals("", block.targetContent());
+        assertEquals(1, block.endLine());
+    }
+
+    @Test
+    void testAddAddConflictCarriesContent() throws Exception {
+        String ours = storeFile("new.txt", "ours");
+        String theirs = storeFile("new.txt", "theirs");
+        String keep = storeFile("keep.txt", "keep");
+
+        versionManager.createVersion("base", Map.of("keep.txt", keep));
+        String pick = versionManager.createVersion("add theirs", Map.of("keep.txt", keep, "new.txt", theirs));
+        String onto = versionManager.createVersion("add ours", Map.of("keep.txt", keep, "new.txt", ours));
+
+        MergeConflictException e = assertThrows(MergeConflictException.class,
+                () -> rebaseEngine.cherryPick(pick, onto));
+        ConflictInfo.ConflictBlock block = e.getConflicts().getFirst().getConflicts().getFirst();
+        assertEquals("ours", block.sourceContent());
+        assertEquals("theirs", block.targetContent());
+    }
+
+    @Test
+    void testFailedRebaseCreatesNoVersions() throws Exception {
+        String base = storeFile("a.txt", "one\ntwo\nthree");
+        String theirs = storeFile("a.txt", "one\ntheirs\nthree");
+        String ours = storeFile("a.txt", "one\nours\nthree");
+        String b1 = storeFile("b.txt", "b1");
+
+        versionManager.createVersion("base", Map.of("a.txt", base));
+        String clean = versionManager.createVersion("add b", Map.of("a.txt", base, "b.txt", b1));
+        String conflicting = versionManager.createVersion("edit a", Map.of("a.txt", theirs, "b.txt", b1));
+        String onto = versionManager.createVersion("ours", Map.of("a.txt", ours));
+        int before = versionManager.getVersionHistory().size();
+
+        assertThrows(MergeConflictException.class, () -> rebaseEngine.rebase(List.of(clean, conflicting), onto));
+        assertEquals(before, versionManager.getVersionHistory().size());
+        assertEquals(onto, versionManager.getCurrentVersion().getVersionId());
+    }
+
+    @Test
+    void testRebaseOntoUnknownVersion() {
+        assertThrows(VersionException.class, () -> rebaseEngine.cherryPick("missing", "also-missing"));
+    }
+
+    private String storeFile(String name, String content) throws Exception {
+        File file = tempDir.resolve(name).toFile();
+        Files.writeString(file.toPath(), content);
+        String hash = HashUtils.calculateFileHash(file);
+        Files.copy(file.toPath(), tempDir.resolve(".vcs").resolve("objects").resolve(hash),
+                StandardCopyOption.REPLACE_EXISTING);
+        return hash;
+    }
+}
@@ -0,0 +1,106 @@
+package test.built.impl;
+
+import impl.LooseObjectStore;
+import impl.SnapshotResolver;
+import impl.SnapshotTree;
+import impl.VersionManager;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotResolverTest {
+    @TempDir
+    Path tempDir;
+
+    private LooseObjectStore store;
+    private VersionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        store = new LooseObjectStore(tempDir.toString());
+        manager = new VersionManager(tempDir.toString(), store);
+    }
+
+    @Test
+    void testDeltaVersionsResolveToFullSnapshot() throws Exception {
+        String first = manager.createDeltaVersion("Initial", Map.of("a.txt", "1", "dir/b.txt", "2"));
+        String second = manager.createDeltaVersion("Edit", Map.of("a.txt", "1b"));
+        String third = manager.createDeltaVersion("Add", Map.of("c.txt", "3", "dir/b.txt", "2b"));
+
+        assertFalse(manager.getVersion(first).isDelta());
+        assertTrue(manager.getVersion(second).isDelta());
+        assertEquals(Map.of("a.txt", "1b"), manager.getVersion(second).getFileHashes());
+
+        SnapshotResolver resolver = manager.getSnapshotResolver();
+        assertEquals(Map.of("a.txt", "1b", "dir/b.txt", "2"), resolver.resolve(second));
+        assertEquals(Map.of("a.txt", "1b", "c.txt", "3", "dir/b.txt", "2b"), resolver.resolve(third));
+        assertEquals(Set.of(new SnapshotTree.Change("a.txt", "1", "1b"),
+                        new SnapshotTree.Change("dir/b.txt", "2", "2b"),
+                        new SnapshotTree.Change("c.txt", null, "3")),
+                new HashSet<>(resolver.diff(first, third)));
+
+        // A fresh manager reads the delta flag back from the journal.
+        VersionManager reopened = new VersionManager(tempDir.toString(), store);
+        assertEquals(resolver.resolve(third), reopened.getSnapshotResolver().resolve(third));
+    }
+
+    @Test
+    void testDeltaRemovalsAreReplayed() throws Exception {
+        String first = manager.createDeltaVersion("Initial", Map.of("a.txt", "1", "dir/b.txt", "2"));
+        Map<String, String> removal = new HashMap<>();
+        removal.put("dir/b.txt", null);
+        removal.put("c.txt", "3");
+        String second = manager.createDeltaVersion("Remove", removal);
+
+        SnapshotResolver resolver = manager.getSnapshotResolver();
+        // Resolved from the cached parent snapshot.
+        resolver.resolveView(first);
+        assertEquals(Map.of("a.txt", "1", "c.txt", "3"), resolver.resolve(second));
+        assertEquals(Set.of(new SnapshotTree.Change("dir/b.txt", "2", null),
+                new SnapshotTree.Change("c.txt", null, "3")), new HashSet<>(resolver.diff(first, second)));
+
+        // Replayed through the snapshot trees, with the removal read back from the journal.
+        VersionManager reopened = new VersionManager(tempDir.toString(), store);
+        assertTrue(reopened.getVersion(second).getFileHashes().containsKey("dir/b.txt"));
+        assertEquals(Map.of("a.txt", "1", "c.txt", "3"), reopened.getSnapshotResolver().resolve(second));
+    }
+
+    @Test
+    void testFullVersionResetsReplay() throws Exception {
+        manager.createDeltaVersion("Initial", Map.of("a.txt", "1", "b.txt", "2"));
+        String full = manager.createVersion("Full", Map.of("c.txt", "3"));
+        String delta = manager.createDeltaVersion("Delta", Map.of("d.txt", "4"));
+
+        SnapshotResolver resolver = manager.getSnapshotResolver();
+        assertEquals(Map.of("c.txt", "3"), resolver.resolve(full));
+        assertEquals(Map.of("c.txt", "3", "d.txt", "4"), resolver.resolve(delta));
+    }
+
+    @Test
+    void testCheckpointsArePersisted() throws Exception {
+        String last = manager.createDeltaVersion("v0", Map.of("file0.txt", "0"));
+        for (int i = 1; i < 150; i++) {
+            last = manager.createDeltaVersion("v" + i, Map.of("file" + (i % 10) + ".txt", String.valueOf(i)));
+        }
+
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 140; i < 150; i++) {
+            expected.put("file" + (i % 10) + ".txt", String.valueOf(i));
+        }
+        assertEquals(expected, manager.getSnapshotResolver().resolve(last));
+        assertEquals(2, manager.getSnapshotResolver().getCheckpointCount());
+        assertTrue(Files.isRegularFile(tempDir.resolve(".vcs").resolve("snapshots")));
+
+        // Append a torn line; the reopened resolver ignores it and still resolves from the saved checkpoints.
+        Files.writeString(tempDir.resolve(".vcs").resolve("snapshots"), "partial",
+                java.nio.file.StandardOpenOption.APPEND);
+        SnapshotResolver reopened = new VersionManager(tempDir.toString(), store).getSnapshotResolver();
+        assertEquals(2, reopened.getCheckpointCount());
+        assertEquals(expected, reopened.resolve(last));
+    }
+}
@@ -0,0 +1,96 @@
+package test.built.impl;
+
+import impl.LooseObjectStore;
+import impl.SnapshotTree;
+import impl.VersionManager;
+import model.VersionInfo;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTreeTest {
+    @TempDir
+    Path tempDir;
+
+    private LooseObjectStore store;
+    private SnapshotTree trees;
+
+    @BeforeEach
+    void setUp() {
+        store = new LooseObjectStore(tempDir.toString());
+        trees = new SnapshotTree(store);
+    }
+
+    @Test
+    void testSnapshotRoundTrip() throws Exception {
+        Map<String, String> snapshot = new HashMap<>();
+        snapshot.put("/abs/dir/a.txt", "ab".repeat(32));
+        snapshot.put("relative.txt", "plain-hash");
+        snapshot.put("dir//double", "cd".repeat(32));
+        snapshot.put("dir", "file-and-directory");
+        snapshot.put("dir/nested/deep.txt", "ef".repeat(32));
+
+        String root = trees.write(snapshot);
+        assertEquals(snapshot, new SnapshotTree(store).read(root));
+        assertEquals(root, trees.write(new HashMap<>(snapshot)));
+        assertTrue(trees.isEmpty(trees.write(Map.of())));
+    }
+
+    @Test
+    void testUnchangedSubtreesAreShared() throws Exception {
+        Map<String, String> snapshot = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            snapshot.put("src/module" + i + "/File.java", "hash-" + i);
+        }
+        trees.write(snapshot);
+        long before = objectCount();
+
+        snapshot.put("src/module7/File.java", "changed");
+        trees.write(snapshot);
+        // Only the changed directory, its parent and the root are new objects.
+        assertEquals(before + 3, objectCount());
+    }
+
+    @Test
+    void testDiffReportsOnlyChangedPaths() throws Exception {
+        Map<String, String> oldSnapshot = new HashMap<>();
+        oldSnapshot.put("a/keep.txt", "1");
+        oldSnapshot.put("a/edit.txt", "2");
+        oldSnapshot.put("b/gone/x.txt", "3");
+        Map<String, String> newSnapshot = new HashMap<>();
+        newSnapshot.put("a/keep.txt", "1");
+        newSnapshot.put("a/edit.txt", "2b");
+        newSnapshot.put("c/new.txt", "4");
+
+        List<SnapshotTree.Change> changes = trees.diff(trees.write(oldSnapshot), trees.write(newSnapshot));
+        Set<SnapshotTree.Change> expected = Set.of(
+                new SnapshotTree.Change("a/edit.txt", "2", "2b"),
+                new SnapshotTree.Change("b/gone/x.txt", "3", null),
+                new SnapshotTree.Change("c/new.txt", null, "4"));
+        assertEquals(expected, new HashSet<>(changes));
+        assertEquals(3, changes.size());
+    }
+
+    @Test
+    void testVersionsRecordTreeRoot() throws Exception {
+        VersionManager manager = new VersionManager(tempDir.toString(), store);
+        Map<String, String> fileHashes = Map.of("dir/a.txt", "ab".repeat(32), "b.txt", "other");
+        String versionId = manager.createVersion("Tree commit", fileHashes);
+        String treeHash = manager.getVersion(versionId).getTreeHash();
+        assertNotNull(treeHash);
+
+        VersionInfo reopened = new VersionManager(tempDir.toString(), store).getVersion(versionId);
+        assertEquals(treeHash, reopened.getTreeHash());
+        assertEquals(fileHashes, reopened.getFileHashes());
+    }
+
+    private long objectCount() throws Exception {
+        try (var hashes = store.list()) {
+            return hashes.count();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package test.built.impl;
+
+import impl.StatCache;
+import exceptions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import utils.HashUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatCacheTest {
+    private StatCache statCache;
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        statCache = new StatCache();
+    }
+
+    @Test
+    void testUnchangedFileIsNotRehashed() throws Exception {
+        Path file = settled("a.txt", "alpha");
+        String hash = statCache.hash(file);
+        assertEquals(HashUtils.calculateFileHash(file.toFile()), hash);
+        assertEquals(1, statCache.getMisses());
+
+        assertEquals(hash, statCache.hash(file));
+        assertEquals(1, statCache.getHits());
+    }
+
+    @Test
+    void testRacilyCleanFileIsAlwaysRehashed() throws Exception {
+        Path file = tempDir.resolve("fresh.txt");
+        Files.writeString(file, "fresh");
+        statCache.hash(file);
+        statCache.hash(file);
+        assertEquals(0, statCache.getHits());
+        assertEquals(2, statCache.getMisses());
+    }
+
+    @Test
+    void testStatChangeForcesRehash() throws Exception {
+        Path file = settled("a.txt", "alpha");
+        String before = statCache.hash(file);
+
+        Files.writeString(file, "omega");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 30_000));
+        String after = statCache.hash(file);
+
+        assertNotEquals(before, after);
+        assertEquals(HashUtils.calculateFileHash(file.toFile()), after);
+        assertEquals(0, statCache.getHits());
+    }
+
+    @Test
+    void testRestoredEntriesAreTrusted() throws Exception {
+        Path file = settled("a.txt", "alpha");
+        String hash = statCache.hash(file);
+
+        // The owner persists entries and hands them back to a fresh cache.
+        StatCache restored = new StatCache();
+        restored.putStat(file.toString(), statCache.getStat(file.toString()));
+        assertEquals(1, restored.size());
+        assertEquals(hash, restored.hash(file));
+        assertEquals(1, restored.getHits());
+    }
+
+    @Test
+    void testMissingFile() {
+        assertThrows(FileOperationException.FileNotFoundException.class,
+                () -> statCache.hash(tempDir.resolve("missing.txt")));
+    }
+
+    private Path settled(String name, String content) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        return file;
+    }
+}
@@ -0,0 +1,79 @@
+package test.built.impl;
+
+import impl.ThreeWayMerge;
+import model.Hunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreeWayMergeTest {
+    private static final List<String> BASE = List.of("one", "two", "three", "four", "five");
+
+    @Test
+    void testDisjointEditsDoNotOverlap() {
+        List<String> source = List.of("ONE", "two", "three", "four", "five");
+        List<String> target = List.of("one", "two", "three", "four", "FIVE");
+        assertFalse(ThreeWayMerge.changesOverlap(BASE, source, target));
+    }
+
+    @Test
+    void testSameLineEditsOverlap() {
+        List<String> source = List.of("one", "two", "source", "four", "five");
+        List<String> target = List.of("one", "two", "target", "four", "five");
+        assertTrue(ThreeWayMerge.changesOverlap(BASE, source, target));
+    }
+
+    @Test
+    void testAdjacentEditsOverlap() {
+        List<String> source = List.of("one", "TWO", "three", "four", "five");
+        List<String> target = List.of("one", "two", "THREE", "four", "five");
+        assertTrue(ThreeWayMerge.changesOverlap(BASE, source, target));
+    }
+
+    @Test
+    void testUnchangedSideNeverOverlaps() {
+        List<String> source = List.of("completely", "different");
+        assertFalse(ThreeWayMerge.changesOverlap(BASE, source, BASE));
+    }
+
+    @Test
+    void testHunksOverlapSweep() {
+        List<Hunk> source = List.of(new Hunk(0, 1, List.of()), new Hunk(10, 12, List.of()));
+        List<Hunk> target = List.of(new Hunk(4, 6, List.of()), new Hunk(11, 11, List.of("x")));
+        assertTrue(ThreeWayMerge.hunksOverlap(source, target));
+        assertFalse(ThreeWayMerge.hunksOverlap(source, List.of(new Hunk(4, 6, List.of()))));
+    }
+
+    @Test
+    void testMergeAppliesBothSides() {
+        List<String> ours = List.of("ONE", "two", "three", "four", "five");
+        List<String> theirs = List.of("one", "two", "three", "four", "five", "six");
+
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, ours, theirs);
+        assertTrue(result.isClean());
+        assertEquals(List.of("ONE", "two", "three", "four", "five", "six"), result.lines());
+    }
+
+    @Test
+    void testMergeIdenticalEditsAreClean() {
+        List<String> edited = List.of("one", "two", "3", "four", "five");
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, edited, edited);
+        assertTrue(result.isClean());
+        assertEquals(edited, result.lines());
+    }
+
+    @Test
+    void testMergeReportsConflictBlock() {
+        List<String> ours = List.of("one", "two", "ours", "four", "five");
+        List<String> theirs = List.of("one", "two", "theirs", "four", "five");
+
+        ThreeWayMerge.Result result = ThreeWayMerge.merge(BASE, ours, theirs);
+        assertFalse(result.isClean());
+        assertEquals(1, result.conflicts().size());
+        assertEquals(2, result.conflicts().getFirst().startLine());
+        assertEquals("ours", result.conflicts().getFirst().sourceContent());
+        assertEquals("theirs", result.conflicts().getFirst().targetContent());
+    }
+}
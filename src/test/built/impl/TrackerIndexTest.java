@@ -0,0 +1,140 @@
+package test.built.impl;
+
+import impl.FileTracker;
+import impl.TrackerIndex;
+import model.FileStatus;
+import exceptions.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackerIndexTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testEntriesRoundTrip() throws Exception {
+        TrackerIndex index = new TrackerIndex(tempDir.toString());
+        List<TrackerIndex.Entry> entries = List.of(
+                new TrackerIndex.Entry("a.txt", "ab".repeat(32), FileStatus.TRACKED, List.of("v1", "v2"), null),
+                new TrackerIndex.Entry("b.txt", "not-a-hex-hash", FileStatus.MODIFIED, List.of(), null));
+        index.write(entries);
+
+        assertTrue(Files.exists(tempDir.resolve(".vcs").resolve("index")));
+        assertEquals(entries, new TrackerIndex(tempDir.toString()).load());
+    }
+
+    @Test
+    void testMissingIndexLoadsEmpty() throws Exception {
+        assertTrue(new TrackerIndex(tempDir.toString()).load().isEmpty());
+    }
+
+    @Test
+    void testCorruptIndexIsRejected() throws Exception {
+        TrackerIndex index = new TrackerIndex(tempDir.toString());
+        index.write(List.of(new TrackerIndex.Entry("a.txt", "hash", FileStatus.TRACKED, List.of(), null)));
+        byte[] data = Files.readAllBytes(index.getIndexFile());
+        data[14] ^= 0x55;
+        Files.write(index.getIndexFile(), data);
+        assertThrows(FileOperationException.FileCorruptedException.class, index::load);
+    }
+
+    @Test
+    void testAppendedChangesAreReplayed() throws Exception {
+        TrackerIndex index = new TrackerIndex(tempDir.toString());
+        index.write(List.of(new TrackerIndex.Entry("a.txt", "a", FileStatus.TRACKED, List.of(), null),
+                new TrackerIndex.Entry("b.txt", "b", FileStatus.TRACKED, List.of(), null)));
+        byte[] base = Files.readAllBytes(index.getIndexFile());
+
+        index.put(new TrackerIndex.Entry("a.txt", "a2", FileStatus.MODIFIED, List.of(), null));
+        index.remove("b.txt");
+        index.put(new TrackerIndex.Entry("c.txt", "c", FileStatus.TRACKED, List.of("v1"), null));
+
+        assertArrayEquals(base, Files.readAllBytes(index.getIndexFile()));
+        assertEquals(3, index.getLogRecordCount());
+        List<TrackerIndex.Entry> loaded = new TrackerIndex(tempDir.toString()).load();
+        assertEquals(List.of(
+                new TrackerIndex.Entry("a.txt", "a2", FileStatus.MODIFIED, List.of(), null),
+                new TrackerIndex.Entry("c.txt", "c", FileStatus.TRACKED, List.of("v1"), null)), loaded);
+    }
+
+    @Test
+    void testTornLogRecordIsIgnored() throws Exception {
+        TrackerIndex index = new TrackerIndex(tempDir.toString());
+        index.put(new TrackerIndex.Entry("a.txt", "a", FileStatus.TRACKED, List.of(), null));
+        index.put(new TrackerIndex.Entry("b.txt", "b", FileStatus.TRACKED, List.of(), null));
+
+        Path log;
+        try (var logs = Files.list(tempDir.resolve(".vcs"))) {
+            log = logs.filter(path -> path.getFileName().toString().startsWith("index.log.")).findFirst().orElseThrow();
+        }
+        byte[] data = Files.readAllBytes(log);
+        Files.write(log, Arrays.copyOf(data, data.length - 3));
+
+        List<TrackerIndex.Entry> loaded = new TrackerIndex(tempDir.toString()).load();
+        assertEquals(List.of(new TrackerIndex.Entry("a.txt", "a", FileStatus.TRACKED, List.of(), null)), loaded);
+    }
+
+    @Test
+    void testMergeFoldsLogIntoBase() throws Exception {
+        TrackerIndex index = new TrackerIndex(tempDir.toString());
+        index.write(List.of(new TrackerIndex.Entry("a.txt", "a", FileStatus.TRACKED, List.of(), null)));
+        index.put(new TrackerIndex.Entry("b.txt", "b", FileStatus.TRACKED, List.of(), null));
+        index.mergeInBackground().get();
+
+        assertEquals(0, index.getLogRecordCount());
+        try (var files = Files.list(tempDir.resolve(".vcs"))) {
+            assertTrue(files.noneMatch(path -> path.getFileName().toString().startsWith("index.log.")));
+        }
+        TrackerIndex reopened = new TrackerIndex(tempDir.toString());
+        assertEquals(2, reopened.load().size());
+
+        reopened.remove("a.txt");
+        assertEquals(List.of(new TrackerIndex.Entry("b.txt", "b", FileStatus.TRACKED, List.of(), null)),
+                new TrackerIndex(tempDir.toString()).load());
+    }
+
+    @Test
+    void testTrackerStateSurvivesRestart() throws Exception {
+        FileTracker tracker = new FileTracker(tempDir.toString());
+        File clean = createTestFile("clean.txt", "clean");
+        File edited = createTestFile("edited.txt", "before");
+        tracker.trackFiles(List.of(clean, edited));
+        tracker.commitFiles(List.of(clean.getPath(), edited.getPath()), "v1");
+        Files.writeString(edited.toPath(), "after");
+        tracker.updateFileStatus(edited.getPath());
+
+        FileTracker reopened = new FileTracker(tempDir.toString());
+        assertEquals(new HashSet<>(tracker.getTrackedFiles()), new HashSet<>(reopened.getTrackedFiles()));
+        assertEquals(FileStatus.TRACKED, reopened.getFileMetadata(clean.getPath()).getStatus());
+        assertEquals(FileStatus.MODIFIED, reopened.getFileMetadata(edited.getPath()).getStatus());
+        assertEquals(List.of("v1"), reopened.getFileMetadata(clean.getPath()).getVersions());
+        assertEquals(tracker.getFileHash(edited.getPath()), reopened.getFileHash(edited.getPath()));
+
+        assertFalse(reopened.isFileModified(clean.getPath()));
+        assertEquals(1, reopened.getStatCache().getHits());
+    }
+
+    @Test
+    void testUntrackIsPersisted() throws Exception {
+        FileTracker tracker = new FileTracker(tempDir.toString());
+        File file = createTestFile("a.txt", "a");
+        tracker.trackFile(file);
+        tracker.untrackFile(file.getPath());
+        assertTrue(new FileTracker(tempDir.toString()).getTrackedFiles().isEmpty());
+    }
+
+    private File createTestFile(String name, String content) throws Exception {
+        File file = new File(tempDir.toFile(), name);
+        Files.writeString(file.toPath(), content);
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        return file;
+    }
+}
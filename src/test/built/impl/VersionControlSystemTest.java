@@ -10,6 +10,8 @@ import java.io.File;
 import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -57,6 +59,161 @@ class VersionControlSystemTest {
         assertTrue(vcs.getTrackedFiles().contains(file2.getPath()));
     }
 
+    @Test
+    void testRecursiveDirectoryUploadFiresOneBatch() throws Exception {
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            expected.add(createTestFile("tree/level" + (i % 3) + "/deeper/file" + i + ".txt", "content " + i).getPath());
+        }
+        createTestFile("tree/.vcs/objects/ignored", "internal");
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        vcs.getEventBus().addBatchListener(batches::add);
+        List<String> events = new ArrayList<>();
+        vcs.addFileChangeListener(events::add);
+
+        assertTrue(vcs.uploadDirectory(tempDir.resolve("tree").toFile()));
+        assertEquals(expected, new HashSet<>(vcs.getTrackedFiles()));
+        assertEquals(30, events.size());
+        assertTrue(vcs.getEventBus().awaitIdle(10, TimeUnit.SECONDS));
+        assertEquals(1, batches.size());
+        assertEquals(expected, new HashSet<>(batches.getFirst()));
+    }
+
+    @Test
+    void testUploadDirectoryHonoursIgnoreFile() throws Exception {
+        Files.writeString(tempDir.resolve(".vcsignore"), String.join("\n",
+                "# build output", "node_modules/", "*.log", "/build", "docs/**/*.tmp", "!keep.log", ""));
+        File kept = createTestFile("app/src/Main.java", "class Main {}");
+        File keptLog = createTestFile("app/keep.log", "keep");
+        File nestedBuild = createTestFile("app/build/Output.java", "nested build dirs are not anchored");
+        createTestFile("app/node_modules/lib/index.js", "ignored");
+        createTestFile("app/debug.log", "ignored");
+        createTestFile("build/out.class", "ignored");
+        createTestFile("docs/a/b/notes.tmp", "ignored");
+        File doc = createTestFile("docs/a/readme.md", "doc");
+
+        assertTrue(vcs.uploadDirectory(tempDir.toFile()));
+        assertEquals(Set.of(kept.getPath(), keptLog.getPath(), nestedBuild.getPath(), doc.getPath(),
+                tempDir.resolve(".vcsignore").toString()), new HashSet<>(vcs.getTrackedFiles()));
+        assertTrue(vcs.scanStatus().values().stream().noneMatch(status -> status == FileStatus.UNTRACKED));
+    }
+
+    @Test
+    void testCommitBuildsOnlyFromStagedFiles() throws Exception {
+        File staged = createTestFile("staged.txt", "one");
+        File unstaged = createTestFile("unstaged.txt", "one");
+        File untouched = createTestFile("untouched.txt", "one");
+        vcs.upload(staged);
+        vcs.upload(unstaged);
+        vcs.upload(untouched);
+        vcs.createVersion("initial");
+
+        Files.writeString(staged.toPath(), "two");
+        Files.writeString(unstaged.toPath(), "two");
+        String stagedHash = vcs.stageFile(staged.getPath());
+        assertEquals(FileStatus.STAGED, vcs.getFileTracker().getFileMetadata(staged.getPath()).getStatus());
+
+        String versionId = vcs.createVersion("staged only");
+        assertEquals(versionId, vcs.getCurrentVersion().getVersionId());
+        assertEquals(Map.of(staged.getPath(), stagedHash), vcs.getCurrentVersion().getFileHashes());
+        assertEquals(FileStatus.TRACKED, vcs.getFileTracker().getFileMetadata(staged.getPath()).getStatus());
+        assertEquals(stagedHash, vcs.getFileTracker().getFileHash(staged.getPath()));
+        assertFalse(vcs.getFileTracker().hasStagedFiles());
+        assertTrue(vcs.getFileTracker().isFileModified(unstaged.getPath()));
+    }
+
+    @Test
+    void testUnstageRestoresWorkingStatus() throws Exception {
+        File file = createTestFile("file.txt", "one");
+        vcs.upload(file);
+        Files.writeString(file.toPath(), "two");
+        vcs.stageFile(file.getPath());
+        vcs.unstageFile(file.getPath());
+
+        FileMetadata metadata = vcs.getFileTracker().getFileMetadata(file.getPath());
+        assertEquals(FileStatus.MODIFIED, metadata.getStatus());
+        assertNull(metadata.getStagedHash());
+        assertTrue(vcs.getFileTracker().getStagedHashes().isEmpty());
+    }
+
+    @Test
+    void testUntrackAndRetrackDropStagedChanges() throws Exception {
+        File a = createTestFile("a.txt", "one");
+        File b = createTestFile("b.txt", "one");
+        vcs.upload(a);
+        vcs.upload(b);
+        vcs.createVersion("initial");
+
+        Files.writeString(a.toPath(), "two");
+        vcs.stageFile(a.getPath());
+        vcs.untrackFile(a.getPath());
+        assertFalse(vcs.getFileTracker().hasStagedFiles());
+
+        vcs.stageFile(a.getPath());
+        vcs.upload(a);
+        assertFalse(vcs.getFileTracker().hasStagedFiles());
+        assertTrue(vcs.getFileTracker().getStagedHashes().isEmpty());
+
+        Files.writeString(b.toPath(), "two");
+        vcs.upload(b);
+        vcs.createVersion("after retrack");
+        assertTrue(vcs.getCurrentVersion().getFileHashes().containsKey(b.getPath()));
+    }
+
+    @Test
+    void testUntrackedFileLeavesLaterSnapshots() throws Exception {
+        File kept = createTestFile("kept.txt", "kept");
+        File dropped = createTestFile("dropped.txt", "dropped");
+        vcs.upload(kept);
+        vcs.upload(dropped);
+        String first = vcs.createVersion("initial");
+
+        vcs.untrackFile(dropped.getPath());
+        String second = vcs.createVersion("drop file");
+
+        assertTrue(vcs.getDiffGenerator().getDiff(first, second).changes().containsKey(dropped.getPath()));
+
+        Files.writeString(kept.toPath(), "edited");
+        vcs.upload(kept);
+        String third = vcs.createVersion("edit kept");
+        Files.delete(dropped.toPath());
+        vcs.revertToVersion(third);
+        assertFalse(dropped.exists());
+        vcs.revertToVersion(first);
+        assertEquals("dropped", Files.readString(dropped.toPath()));
+    }
+
+    @Test
+    void testUntrackBeforeReopenIsCommittedAsRemoval() throws Exception {
+        File kept = createTestFile("kept.txt", "kept");
+        File dropped = createTestFile("dropped.txt", "dropped");
+        vcs.upload(kept);
+        vcs.upload(dropped);
+        String first = vcs.createVersion("initial");
+        vcs.untrackFile(dropped.getPath());
+
+        VersionControlSystem reopened = new VersionControlSystem(tempDir.toString());
+        assertEquals(first, reopened.getCurrentVersion().getVersionId());
+        String second = reopened.createVersion("drop file");
+        assertEquals(List.of(first, second),
+                reopened.getVersionHistory().stream().map(VersionInfo::getVersionId).toList());
+
+        assertTrue(reopened.getDiffGenerator().getDiff(first, second).changes().containsKey(dropped.getPath()));
+        Files.delete(dropped.toPath());
+        reopened.revertToVersion(second);
+        assertFalse(dropped.exists());
+    }
+
+    @Test
+    void testStagingUntrackedFileTracksIt() throws Exception {
+        File file = createTestFile("new.txt", "fresh");
+        vcs.stageFile(file.getPath());
+        assertTrue(vcs.getTrackedFiles().contains(file.getPath()));
+        assertEquals(Set.of(file.getPath()), vcs.getFileTracker().getStagedHashes().keySet());
+        assertEquals(Set.of(file.getPath()),
+                new FileTracker(tempDir.toString()).getStagedHashes().keySet());
+    }
+
     @Test
     void testFileModificationAndVersioning() throws Exception {
         File testFile = createTestFile("test.txt", "initial content");
@@ -174,6 +331,78 @@ class VersionControlSystemTest {
         assertEquals(FileStatus.MODIFIED, vcs.getFileStatuses().get(testFile.getPath()));
     }
 
+    @Test
+    void testCherryPickOntoCurrentVersion() throws Exception {
+        File testFile = createTestFile("test.txt", "initial content");
+        vcs.upload(testFile);
+        String version1 = vcs.createVersion("Initial commit");
+
+        Files.writeString(testFile.toPath(), "modified content");
+        vcs.getFileTracker().updateFileStatus(testFile.getPath());
+        String version2 = vcs.createVersion("Modified file");
+
+        String picked = vcs.cherryPick(version2);
+        assertEquals(3, vcs.getVersionHistory().size());
+        assertEquals(picked, vcs.getCurrentVersion().getVersionId());
+        assertEquals(vcs.getFileTracker().getFileHash(testFile.getPath()),
+                vcs.getCurrentVersion().getFileHashes().get(testFile.getPath()));
+        assertNotNull(version1);
+    }
+
+    @Test
+    void testObjectsAreFannedOut() throws Exception {
+        File testFile = createTestFile("test.txt", "content");
+        vcs.upload(testFile);
+
+        String hash = vcs.getFileTracker().getFileHash(testFile.getPath());
+        Path sharded = tempDir.resolve(".vcs/objects").resolve(hash.substring(0, 2))
+                .resolve(hash.substring(2, 4)).resolve(hash);
+        assertTrue(Files.exists(sharded));
+        assertFalse(Files.exists(tempDir.resolve(".vcs/objects").resolve(hash)));
+    }
+
+    @Test
+    void testMigrateLegacyObjectLayout() throws Exception {
+        File testFile = createTestFile("test.txt", "legacy content");
+        vcs.upload(testFile);
+        String version = vcs.createVersion("Initial commit");
+        String hash = vcs.getFileTracker().getFileHash(testFile.getPath());
+
+        Path objects = tempDir.resolve(".vcs/objects");
+        Path sharded = objects.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+        Files.move(sharded, objects.resolve(hash));
+        Files.writeString(testFile.toPath(), "changed");
+
+        vcs.revertToVersion(version);
+        assertEquals("legacy content", Files.readString(testFile.toPath()));
+
+        assertEquals(1, vcs.migrateObjectLayout());
+        assertTrue(Files.exists(sharded));
+        assertFalse(Files.exists(objects.resolve(hash)));
+        assertEquals(0, vcs.migrateObjectLayout());
+    }
+
+    @Test
+    void testInMemoryObjectStore() throws Exception {
+        InMemoryObjectStore store = new InMemoryObjectStore();
+        VersionControlSystem memoryVcs = new VersionControlSystem(tempDir.resolve("memory").toString(), store);
+
+        File testFile = createTestFile("test.txt", "initial content");
+        memoryVcs.upload(testFile);
+        String version1 = memoryVcs.createVersion("Initial commit");
+        assertTrue(store.has(memoryVcs.getFileTracker().getFileHash(testFile.getPath())));
+        assertTrue(store.has(memoryVcs.getCurrentVersion().getTreeHash()));
+
+        Files.writeString(testFile.toPath(), "modified content");
+        memoryVcs.getFileTracker().updateFileStatus(testFile.getPath());
+        String version2 = memoryVcs.createVersion("Modified file");
+        assertTrue(store.has(memoryVcs.getFileTracker().getFileHash(testFile.getPath())));
+        assertTrue(memoryVcs.getDiffGenerator().getDiff(version1, version2).hasChanges());
+
+        memoryVcs.revertToVersion(version1);
+        assertEquals("initial content", Files.readString(testFile.toPath()));
+    }
+
     private File createTestFile(String name, String content) throws Exception {
         Path filePath = tempDir.resolve(name);
         Files.createDirectories(filePath.getParent());
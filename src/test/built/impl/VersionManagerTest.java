@@ -1,13 +1,19 @@
 package test.built.impl;
 
+import impl.VersionJournal;
 import impl.VersionManager;
 import model.VersionInfo;
+import utils.ObjectPaths;
+import utils.VersionCodec;
 import exceptions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -84,4 +90,190 @@ class VersionManagerTest {
         assertNotNull(version);
         assertEquals("Test commit", version.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testBinaryFormatRoundTrip() throws Exception {
+        Map<String, String> fileHashes = new HashMap<>();
+        fileHashes.put("src/app/Main.java", "ab".repeat(32));
+        fileHashes.put("src/app/Model.java", "0f".repeat(32));
+        fileHashes.put("notes.txt", "not-hex");
+        String versionId = versionManager.createVersion("Binary \u00e9 commit", fileHashes);
+
+        assertTrue(versionManager.getJournal().getHeaders().stream()
+                .anyMatch(header -> header.versionId().equals(versionId)));
+
+        VersionInfo original = versionManager.getVersion(versionId);
+        VersionInfo loaded = new VersionManager(tempDir.toString()).getVersion(versionId);
+        assertEquals(original.getMessage(), loaded.getMessage());
+        assertEquals(original.getAuthor(), loaded.getAuthor());
+        assertEquals(original.getTimestamp(), loaded.getTimestamp());
+        assertEquals(fileHashes, loaded.getFileHashes());
+    }
+
+    @Test
+    void testLegacySerializedVersionIsLoaded() throws Exception {
+        VersionInfo legacy = new VersionInfo("Legacy", "someone", Map.of("a.txt", "hash"));
+        Path versionsDir = Files.createDirectories(tempDir.resolve(".vcs").resolve("versions"));
+        try (ObjectOutputStream oos = new ObjectOutputStream(
+                Files.newOutputStream(versionsDir.resolve(legacy.getVersionId())))) {
+            oos.writeObject(legacy);
+        }
+
+        VersionInfo loaded = new VersionManager(tempDir.toString()).getVersion(legacy.getVersionId());
+        assertNotNull(loaded);
+        assertEquals(Map.of("a.txt", "hash"), loaded.getFileHashes());
+    }
+
+    @Test
+    void testCorruptedVersionIsRejected() throws Exception {
+        VersionInfo version = new VersionInfo("Commit", "someone", Map.of("a.txt", "cd".repeat(32)));
+        byte[] data = VersionCodec.encode(version);
+        assertEquals(version.getFileHashes(), VersionCodec.decode(data).getFileHashes());
+
+        data[data.length / 2] ^= 0x40;
+        assertThrows(FileOperationException.FileCorruptedException.class, () -> VersionCodec.decode(data));
+    }
+
+    @Test
+    void testJournalReplaysAfterCheckpointAndRepairsTornTail() throws Exception {
+        Path versionsDir = tempDir.resolve(".vcs").resolve("versions");
+        VersionJournal journal = new VersionJournal(versionsDir, 256);
+        journal.open();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            VersionInfo version = new VersionInfo("commit " + i, "someone", Map.of("file" + i, "ab".repeat(32)));
+            journal.append(version);
+            ids.add(version.getVersionId());
+        }
+
+        Path last;
+        try (var files = Files.list(versionsDir)) {
+            List<Path> segments = files.filter(path -> path.getFileName().toString().endsWith(".seg")).sorted().toList();
+            assertTrue(segments.size() > 1);
+            last = segments.getLast();
+        }
+        Files.write(last, new byte[]{0, 0, 1, 0, 7}, java.nio.file.StandardOpenOption.APPEND);
+
+        VersionManager reopened = new VersionManager(tempDir.toString());
+        assertEquals(ids, reopened.getVersionHistory().stream().map(VersionInfo::getVersionId).toList());
+        assertEquals("commit 3", reopened.getVersion(ids.get(3)).getMessage());
+
+        String next = reopened.createVersion("after repair", Map.of());
+        assertEquals(7, new VersionManager(tempDir.toString()).getVersionHistory().size());
+        assertEquals(next, new VersionManager(tempDir.toString()).getCurrentVersion().getVersionId());
+    }
+
+    @Test
+    void testSealedSegmentIndexesAreNotRewritten() throws Exception {
+        Path versionsDir = tempDir.resolve(".vcs").resolve("versions");
+        VersionJournal journal = new VersionJournal(versionsDir, 256);
+        journal.open();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            VersionInfo version = new VersionInfo("commit " + i, "someone", Map.of("file" + i, "ab".repeat(32)));
+            journal.append(version);
+            ids.add(version.getVersionId());
+        }
+        Path firstIndex = versionsDir.resolve("journal-00000001.idx");
+        assertTrue(Files.isRegularFile(firstIndex));
+        byte[] sealed = Files.readAllBytes(firstIndex);
+
+        journal.append(new VersionInfo("commit 6", "someone", Map.of()));
+        journal.writeCheckpoint();
+        assertArrayEquals(sealed, Files.readAllBytes(firstIndex));
+
+        // A torn index frame is dropped and its records are found by scanning the segment again.
+        Files.write(firstIndex, Arrays.copyOf(sealed, sealed.length - 3));
+        VersionJournal reopened = new VersionJournal(versionsDir, 256);
+        reopened.open();
+        assertEquals(7, reopened.size());
+        assertEquals(ids, reopened.getHeaders().subList(0, 6).stream().map(VersionJournal.Header::versionId).toList());
+        assertArrayEquals(sealed, Files.readAllBytes(firstIndex));
+    }
+
+    @Test
+    void testRevertFindsJournaledVersion() throws Exception {
+        String versionId = versionManager.createVersion("Commit", Map.of());
+        assertDoesNotThrow(() -> new VersionManager(tempDir.toString()).revertToVersion(versionId));
+    }
+
+    @Test
+    void testReopenedVersionsLoadContentsOnDemand() throws Exception {
+        Map<String, String> fileHashes = Map.of("a.txt", "12".repeat(32), "b.txt", "other");
+        String versionId = versionManager.createVersion("Lazy commit", fileHashes);
+        VersionInfo created = versionManager.getVersion(versionId);
+
+        VersionManager reopened = new VersionManager(tempDir.toString());
+        VersionInfo version = reopened.getVersion(versionId);
+        assertEquals(created.getTimestamp(), version.getTimestamp());
+        assertEquals(created.getAuthor(), version.getAuthor());
+        assertEquals("Lazy commit", version.getMessage());
+        assertEquals(fileHashes, version.getFileHashes());
+        assertEquals(2, version.getFileCount());
+
+        version.getFileHashes().clear();
+        assertEquals(fileHashes, version.getFileHashes());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(version);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            VersionInfo copy = (VersionInfo) ois.readObject();
+            assertEquals(versionId, copy.getVersionId());
+            assertEquals(fileHashes, copy.getFileHashes());
+        }
+    }
+
+    @Test
+    void testHistoryIsListedWithoutReadingSnapshots() throws Exception {
+        String full = versionManager.createVersion("Full commit", Map.of("a.txt", "12".repeat(32), "b.txt", "x"));
+        String delta = versionManager.createDeltaVersion("Delta commit", Map.of("c.txt", "34".repeat(32)));
+
+        // With the snapshot trees gone, anything that reads a file table fails.
+        try (var paths = Files.walk(ObjectPaths.objectsDir(tempDir.toString()))) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+
+        VersionManager reopened = new VersionManager(tempDir.toString());
+        VersionInfo version = reopened.getVersion(full);
+        assertEquals("Full commit", version.getMessage());
+        assertEquals(2, version.getFileCount());
+        assertTrue(version.toString().contains("message='Full commit'"));
+        assertEquals("Delta commit", reopened.getVersion(delta).getMessage());
+        assertEquals(1, reopened.getVersion(delta).getFileCount());
+        assertThrows(IllegalStateException.class, version::getFileHashes);
+    }
+
+    @Test
+    void testLegacyVersionsAreOrderedByTimestamp() throws Exception {
+        Path versionsDir = Files.createDirectories(tempDir.resolve(".vcs").resolve("versions"));
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            // Ids sort in the opposite order to the timestamps, so directory order cannot be relied on.
+            String versionId = String.format("v%02d", 19 - i);
+            VersionInfo version = new VersionInfo(versionId, "commit " + i, base.plusMinutes(i), "someone",
+                    Map.of("f.txt", "h" + i));
+            if (i % 2 == 0) {
+                Files.write(versionsDir.resolve(versionId), VersionCodec.encode(version));
+            } else {
+                try (ObjectOutputStream oos = new ObjectOutputStream(
+                        Files.newOutputStream(versionsDir.resolve(versionId)))) {
+                    oos.writeObject(version);
+                }
+            }
+            expected.add(versionId);
+        }
+        Files.writeString(versionsDir.resolve("broken"), "not a version");
+
+        VersionManager manager = new VersionManager(tempDir.toString());
+        assertEquals(expected, manager.getVersionHistory().stream().map(VersionInfo::getVersionId).toList());
+
+        String latest = manager.createVersion("journaled", Map.of());
+        assertEquals(latest, new VersionManager(tempDir.toString()).getCurrentVersion().getVersionId());
+    }
+}
@@ -0,0 +1,94 @@
+package test.built.interfaces;
+
+import impl.InMemoryObjectStore;
+import impl.LooseObjectStore;
+import impl.PackedObjectStore;
+import interfaces.ObjectStore;
+import exceptions.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import utils.HashUtils;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectStoreTest {
+    @TempDir
+    Path tempDir;
+
+    private ObjectStore createStore(String backend) throws Exception {
+        return switch (backend) {
+            case "loose" -> new LooseObjectStore(tempDir.toString());
+            case "packed" -> new PackedObjectStore(tempDir.toString());
+            default -> new InMemoryObjectStore();
+        };
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"loose", "packed", "memory"})
+    void shouldRoundTripBytes(String backend) throws Exception {
+        ObjectStore store = createStore(backend);
+        byte[] content = "hello\nworld".getBytes(StandardCharsets.UTF_8);
+
+        String hash = store.put(content);
+        assertEquals(HashUtils.calculateBytesHash(content), hash);
+        assertTrue(store.has(hash));
+        assertArrayEquals(content, store.get(hash));
+        try (InputStream in = store.open(hash)) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"loose", "packed", "memory"})
+    void shouldStoreFileUnderContentHash(String backend) throws Exception {
+        ObjectStore store = createStore(backend);
+        Path file = tempDir.resolve("file.txt");
+        Files.writeString(file, "file content");
+
+        String hash = store.put(file);
+        assertEquals(HashUtils.calculateFileHash(file.toFile()), hash);
+        assertEquals("file content", new String(store.get(hash), StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"loose", "packed", "memory"})
+    void shouldDeduplicateIdenticalContent(String backend) throws Exception {
+        ObjectStore store = createStore(backend);
+        String first = store.put("same".getBytes(StandardCharsets.UTF_8));
+        String second = store.put("same".getBytes(StandardCharsets.UTF_8));
+        store.put("other".getBytes(StandardCharsets.UTF_8));
+        store.flush();
+
+        assertEquals(first, second);
+        try (Stream<String> hashes = store.list()) {
+            List<String> listed = hashes.toList();
+            assertEquals(2, listed.size());
+            assertTrue(listed.contains(first));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"loose", "packed", "memory"})
+    void shouldRejectMissingObject(String backend) throws Exception {
+        ObjectStore store = createStore(backend);
+        String missing = HashUtils.calculateStringHash("missing");
+        assertFalse(store.has(missing));
+        assertThrows(FileOperationException.class, () -> store.get(missing));
+        assertThrows(FileOperationException.class, () -> store.open(missing));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"loose", "packed", "memory"})
+    void shouldRejectMissingFile(String backend) throws Exception {
+        ObjectStore store = createStore(backend);
+        assertThrows(FileOperationException.class, () -> store.put(tempDir.resolve("nope.txt")));
+    }
+}
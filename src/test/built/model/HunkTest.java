@@ -0,0 +1,44 @@
+package test.built.model;
+
+import model.Hunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HunkTest {
+
+    @Test
+    void testConstructorAndGetters() {
+        Hunk hunk = new Hunk(2, 4, List.of("a", "b", "c"));
+        assertEquals(2, hunk.oldStart());
+        assertEquals(4, hunk.oldEnd());
+        assertEquals(List.of("a", "b", "c"), hunk.newLines());
+        assertEquals(1, hunk.lineDelta());
+    }
+
+    @Test
+    void testInvalidRange() {
+        assertThrows(IllegalArgumentException.class, () -> new Hunk(-1, 0, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new Hunk(3, 2, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new Hunk(0, 0, null));
+    }
+
+    @Test
+    void testDefensiveCopy() {
+        List<String> lines = new ArrayList<>(List.of("x"));
+        Hunk hunk = new Hunk(0, 1, lines);
+        lines.add("y");
+        assertEquals(1, hunk.newLines().size());
+    }
+
+    @Test
+    void testOverlapIncludesAdjacentRanges() {
+        Hunk first = new Hunk(0, 2, List.of());
+        assertTrue(first.overlaps(new Hunk(1, 3, List.of())));
+        assertTrue(first.overlaps(new Hunk(2, 2, List.of("insert"))));
+        assertFalse(first.overlaps(new Hunk(3, 4, List.of())));
+    }
+}
@@ -0,0 +1,64 @@
+package test.built.model;
+
+import model.MergePrediction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MergePredictionTest {
+    private MergePrediction prediction;
+    private Map<String, MergePrediction.Outcome> outcomes;
+
+    @BeforeEach
+    void setUp() {
+        outcomes = new HashMap<>();
+        outcomes.put("b.txt", MergePrediction.Outcome.CONFLICT);
+        outcomes.put("a.txt", MergePrediction.Outcome.CONFLICT);
+        outcomes.put("c.txt", MergePrediction.Outcome.SOURCE_ONLY);
+        prediction = new MergePrediction("source", "target", outcomes);
+    }
+
+    @Test
+    void testConstructorAndGetters() {
+        assertEquals("source", prediction.sourceVersion());
+        assertEquals("target", prediction.targetVersion());
+        assertEquals(3, prediction.outcomes().size());
+    }
+
+    @Test
+    void testConflictingPathsAreSorted() {
+        assertTrue(prediction.hasConflicts());
+        assertEquals(List.of("a.txt", "b.txt"), prediction.getConflictingPaths());
+    }
+
+    @Test
+    void testUnknownPathIsUnchanged() {
+        assertEquals(MergePrediction.Outcome.UNCHANGED, prediction.getOutcome("missing.txt"));
+    }
+
+    @Test
+    void testDefensiveCopy() {
+        outcomes.put("d.txt", MergePrediction.Outcome.CONFLICT);
+        assertEquals(3, prediction.outcomes().size());
+        assertThrows(UnsupportedOperationException.class,
+                () -> prediction.outcomes().put("e.txt", MergePrediction.Outcome.IDENTICAL));
+    }
+
+    @Test
+    void testNoConflicts() {
+        MergePrediction clean = new MergePrediction("s", "t",
+                Map.of("x.txt", MergePrediction.Outcome.AUTO_MERGEABLE));
+        assertFalse(clean.hasConflicts());
+        assertTrue(clean.getConflictingPaths().isEmpty());
+    }
+
+    @Test
+    void testToString() {
+        String toString = prediction.toString();
+        assertTrue(toString.contains("source"));
+        assertTrue(toString.contains("conflicts=2"));
+    }
+}
@@ -1,6 +1,7 @@
 package test.built.model;
 
 import model.VersionInfo;
+import utils.PersistentHashMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -212,4 +213,66 @@ class VersionInfoTest {
             assertEquals(entry.getValue(), retrievedHashes.get(entry.getKey()));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFileHashesViewIsSharedAndReadOnly() {
+        PersistentHashMap<String, String> view = versionInfo.getFileHashesView();
+        assertSame(view, versionInfo.getFileHashesView());
+        assertEquals(testFileHashes, view);
+        assertThrows(UnsupportedOperationException.class, () -> view.put("newFile.txt", "newHash"));
+
+        // A version built from another's view keeps the same map instead of copying it.
+        VersionInfo child = new VersionInfo("child", null, LocalDateTime.now(), TEST_AUTHOR, view);
+        assertSame(view, child.getFileHashesView());
+
+        PersistentHashMap<String, String> updated = view.plus("file3.txt", "hash3").minus("file1.txt");
+        assertEquals(Map.of("file2.txt", "hash2", "file3.txt", "hash3"), updated);
+        assertEquals(testFileHashes, view);
+        assertSame(view, view.plus("file1.txt", "hash1"));
+    }
+
+    @Test
+    void testFileHashesViewMatchesHashMap() {
+        Map<String, String> expected = new HashMap<>();
+        PersistentHashMap<String, String> snapshot = PersistentHashMap.empty();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String path = "dir" + random.nextInt(50) + "/file" + random.nextInt(2000);
+            if (random.nextInt(4) == 0) {
+                expected.remove(path);
+                snapshot = snapshot.minus(path);
+            } else {
+                expected.put(path, "hash" + i);
+                snapshot = snapshot.plus(path, "hash" + i);
+            }
+        }
+        // "Aa" and "BB" share a hash code, so they land in one collision node.
+        expected.put("Aa", "first");
+        expected.put("BB", "second");
+        snapshot = snapshot.plusAll(Map.of("Aa", "first", "BB", "second"));
+
+        assertEquals(expected.size(), snapshot.size());
+        assertEquals(expected, snapshot);
+        assertEquals(expected.hashCode(), snapshot.hashCode());
+        assertEquals(expected, PersistentHashMap.copyOf(expected));
+        assertEquals(expected.size(), snapshot.entrySet().stream().count());
+
+        snapshot = snapshot.minus("Aa");
+        assertNull(snapshot.get("Aa"));
+        assertEquals("second", snapshot.get("BB"));
+    }
+
+    @Test
+    void testSerializedViewRoundTrip() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(versionInfo);
+        }
+        VersionInfo deserialized;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            deserialized = (VersionInfo) ois.readObject();
+        }
+        assertEquals(testFileHashes, deserialized.getFileHashesView());
+        assertEquals("hash3", deserialized.getFileHashesView().plus("file3.txt", "hash3").get("file3.txt"));
+    }
+}
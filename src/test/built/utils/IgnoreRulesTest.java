@@ -0,0 +1,48 @@
+package test.built.utils;
+
+import org.junit.jupiter.api.*;
+import utils.IgnoreRules;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IgnoreRulesTest {
+    private IgnoreRules rules;
+
+    @BeforeEach
+    void setUp() {
+        rules = IgnoreRules.compile(List.of(
+                "*.o", "target/", "/root-only.txt", "lib/**/gen", "data[0-9].csv", "temp?", "!important.o"));
+    }
+
+    @Test
+    void testNegationOverridesEarlierMatch() {
+        assertTrue(rules.isIgnored("a/b/c.o", false));
+        assertFalse(rules.isIgnored("a/b/important.o", false));
+    }
+
+    @Test
+    void testDirectoryAndAnchoredPatterns() {
+        assertTrue(rules.isIgnored("x/target/classes/A.class", false));
+        assertFalse(rules.isIgnored("x/target", false));
+        assertTrue(rules.isIgnored("root-only.txt", false));
+        assertFalse(rules.isIgnored("sub/root-only.txt", false));
+        assertTrue(rules.isIgnored("lib/gen/file", false));
+        assertTrue(rules.isIgnored("lib/a/b/gen", true));
+    }
+
+    @Test
+    void testCharacterClassesAndSingleWildcards() {
+        assertTrue(rules.isIgnored("data7.csv", false));
+        assertFalse(rules.isIgnored("dataX.csv", false));
+        assertTrue(rules.isIgnored("temp1", false));
+        assertFalse(rules.isIgnored("temp12", false));
+    }
+
+    @Test
+    void testEmptyRulesAndPathologicalPatterns() {
+        assertFalse(IgnoreRules.empty().isIgnored("anything", false));
+        assertFalse(IgnoreRules.compile(List.of("*a*a*a*a*a*b")).isIgnored("a".repeat(5000), false));
+    }
+}
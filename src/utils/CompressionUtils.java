@@ -0,0 +1,181 @@
+package utils;
+
+import exceptions.FileOperationException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+public class CompressionUtils {
+    // The zero byte keeps legacy raw text objects from ever looking like a header.
+    private static final byte[] MAGIC = {'V', 'O', 0, 1};
+    public static final byte METHOD_RAW = 0;
+    public static final byte METHOD_DEFLATE = 1;
+    public static final int HEADER_LENGTH = MAGIC.length + 1 + 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static byte[] compress(byte[] content) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, content.length / 4));
+            out.writeBytes(header(METHOD_DEFLATE, content.length));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+                if (out.size() >= HEADER_LENGTH + content.length) {
+                    return stored(content);
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Streams source into target in a single pass. The method is chosen from a deflate probe of the
+    // first block, so incompressible content is stored raw without reading the source twice.
+    public static byte compress(InputStream source, OutputStream target, long size) throws IOException {
+        byte[] sample = source.readNBytes((int) Math.min(size, BUFFER_SIZE));
+        byte method = compresses(sample) ? METHOD_DEFLATE : METHOD_RAW;
+        target.write(header(method, size));
+        if (method == METHOD_RAW) {
+            target.write(sample);
+            source.transferTo(target);
+            return method;
+        }
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(target, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                finish();
+            }
+        }) {
+            out.write(sample);
+            source.transferTo(out);
+        } finally {
+            deflater.end();
+        }
+        return method;
+    }
+
+    public static byte[] decompress(byte[] stored, String name) throws FileOperationException {
+        if (!hasHeader(stored)) {
+            return stored;
+        }
+        ByteBuffer header = ByteBuffer.wrap(stored, MAGIC.length, HEADER_LENGTH - MAGIC.length);
+        byte method = header.get();
+        long size = header.getLong();
+        if (size < 0 || size > Integer.MAX_VALUE - 8
+                || (method == METHOD_RAW && stored.length - HEADER_LENGTH != size)) {
+            throw new FileOperationException.FileCorruptedException(name);
+        }
+        if (method == METHOD_RAW) {
+            byte[] content = new byte[(int) size];
+            System.arraycopy(stored, HEADER_LENGTH, content, 0, content.length);
+            return content;
+        }
+        if (method != METHOD_DEFLATE) {
+            throw new FileOperationException.FileCorruptedException(name);
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH);
+            byte[] content = new byte[(int) size];
+            int read = 0;
+            while (read < content.length && !inflater.finished()) {
+                int n = inflater.inflate(content, read, content.length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != content.length) {
+                throw new FileOperationException.FileCorruptedException(name);
+            }
+            return content;
+        } catch (DataFormatException e) {
+            throw new FileOperationException.FileCorruptedException(name);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Wraps a stored object stream so callers read the original bytes without buffering the whole object.
+    public static InputStream decompress(InputStream stored) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(stored, HEADER_LENGTH);
+        byte[] header = in.readNBytes(HEADER_LENGTH);
+        if (!hasHeader(header)) {
+            in.unread(header);
+            return in;
+        }
+        byte method = header[MAGIC.length];
+        if (method == METHOD_RAW) {
+            return in;
+        }
+        if (method != METHOD_DEFLATE) {
+            in.close();
+            throw new IOException("Unknown object compression method: " + method);
+        }
+        return new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+            private boolean ended;
+
+            @Override
+            public void close() throws IOException {
+                if (!ended) {
+                    ended = true;
+                    inf.end();
+                }
+                super.close();
+            }
+        };
+    }
+
+    private static boolean hasHeader(byte[] data) {
+        if (data.length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean compresses(byte[] sample) {
+        if (sample.length < HEADER_LENGTH) {
+            return false;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            byte[] buffer = new byte[sample.length];
+            int produced = 0;
+            while (!deflater.finished() && produced < buffer.length) {
+                produced += deflater.deflate(buffer, produced, buffer.length - produced);
+            }
+            return deflater.finished() && produced < sample.length * 9L / 10;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] stored(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_LENGTH + content.length);
+        out.writeBytes(header(METHOD_RAW, content.length));
+        out.writeBytes(content);
+        return out.toByteArray();
+    }
+
+    private static byte[] header(byte method, long size) {
+        return ByteBuffer.allocate(HEADER_LENGTH).put(MAGIC).put(method).putLong(size).array();
+    }
+}
@@ -0,0 +1,152 @@
+package utils;
+
+import exceptions.FileOperationException;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DeltaCodec {
+    private static final int OP_COPY = 0;
+    private static final int OP_INSERT = 1;
+    private static final int MIN_BLOCK = 16;
+    private static final int MAX_INDEXED_BLOCKS = 1 << 20;
+    private static final int PRIME = 31;
+
+    public static byte[] encode(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, target.length / 4));
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+
+        // Large bases are indexed with coarser blocks so the index stays bounded.
+        int block = Math.max(MIN_BLOCK, base.length / MAX_INDEXED_BLOCKS + 1);
+        if (base.length < block || target.length < block) {
+            writeInsert(out, target, 0, target.length);
+            return out.toByteArray();
+        }
+
+        int power = 1;
+        for (int i = 1; i < block; i++) {
+            power *= PRIME;
+        }
+        Map<Integer, Integer> index = new HashMap<>();
+        for (int offset = 0; offset + block <= base.length; offset += block) {
+            index.putIfAbsent(blockHash(base, offset, block), offset);
+        }
+
+        int insertStart = 0;
+        int position = 0;
+        int hash = blockHash(target, 0, block);
+        while (position + block <= target.length) {
+            Integer candidate = index.get(hash);
+            if (candidate != null && regionEquals(base, candidate, target, position, block)) {
+                int start = position;
+                int baseStart = candidate;
+                while (start > insertStart && baseStart > 0 && target[start - 1] == base[baseStart - 1]) {
+                    start--;
+                    baseStart--;
+                }
+                int end = position + block;
+                int baseEnd = candidate + block;
+                while (end < target.length && baseEnd < base.length && target[end] == base[baseEnd]) {
+                    end++;
+                    baseEnd++;
+                }
+
+                writeInsert(out, target, insertStart, start);
+                out.write(OP_COPY);
+                writeVarint(out, baseStart);
+                writeVarint(out, end - start);
+
+                position = end;
+                insertStart = end;
+                if (position + block <= target.length) {
+                    hash = blockHash(target, position, block);
+                }
+                continue;
+            }
+            if (position + block < target.length) {
+                hash = (hash - target[position] * power) * PRIME + target[position + block];
+            }
+            position++;
+        }
+        writeInsert(out, target, insertStart, target.length);
+        return out.toByteArray();
+    }
+
+    public static byte[] apply(byte[] base, byte[] delta) throws FileOperationException {
+        int[] cursor = {0};
+        try {
+            long baseLength = readVarint(delta, cursor);
+            long resultLength = readVarint(delta, cursor);
+            if (baseLength != base.length) {
+                throw new FileOperationException.FileCorruptedException("delta base length mismatch");
+            }
+
+            byte[] result = new byte[(int) resultLength];
+            int written = 0;
+            while (cursor[0] < delta.length) {
+                int op = delta[cursor[0]++];
+                if (op == OP_COPY) {
+                    int offset = (int) readVarint(delta, cursor);
+                    int length = (int) readVarint(delta, cursor);
+                    System.arraycopy(base, offset, result, written, length);
+                    written += length;
+                } else if (op == OP_INSERT) {
+                    int length = (int) readVarint(delta, cursor);
+                    System.arraycopy(delta, cursor[0], result, written, length);
+                    cursor[0] += length;
+                    written += length;
+                } else {
+                    throw new FileOperationException.FileCorruptedException("unknown delta op " + op);
+                }
+            }
+            if (written != result.length) {
+                throw new FileOperationException.FileCorruptedException("delta result length mismatch");
+            }
+            return result;
+        } catch (IndexOutOfBoundsException e) {
+            throw new FileOperationException.FileCorruptedException("truncated delta");
+        }
+    }
+
+    private static void writeInsert(ByteArrayOutputStream out, byte[] data, int from, int to) {
+        if (to > from) {
+            out.write(OP_INSERT);
+            writeVarint(out, to - from);
+            out.write(data, from, to - from);
+        }
+    }
+
+    private static int blockHash(byte[] data, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = hash * PRIME + data[offset + i];
+        }
+        return hash;
+    }
+
+    private static boolean regionEquals(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        return Arrays.equals(a, aOffset, aOffset + length, b, bOffset, bOffset + length);
+    }
+
+    public static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public static long readVarint(byte[] data, int[] cursor) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[cursor[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -3,6 +3,9 @@ package utils;
 
 import exceptions.FileOperationException;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -33,6 +36,18 @@ public class FileUtils {
         }
     }
 
+    public static List<String> readLines(InputStream in) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
     public static void writeString(File file, String content) throws FileOperationException {
         try {
             Files.writeString(file.toPath(), content);
@@ -41,6 +56,28 @@ public class FileUtils {
         }
     }
 
+    // Flushes the content to disk before returning, so renaming the file into place cannot expose
+    // an empty or torn file after a crash.
+    public static void writeDurably(Path file, byte[] content) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    // Makes renames and deletions inside the directory durable.
+    public static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms cannot open a directory as a channel; there the rename is as durable as the OS makes it.
+        }
+    }
+
     public static void writeObjectToFile(String path, Object object) throws FileOperationException {
         try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(path))) {
             oos.writeObject(object);
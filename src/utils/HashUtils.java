@@ -3,17 +3,31 @@ package utils;
 import exceptions.FileOperationException;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 public class HashUtils {
     private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    // One direct buffer per thread, so hashing never allocates per file or per chunk.
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
 
     public static String calculateFileHash(File file) throws FileOperationException {
-        try {
-            byte[] fileBytes = Files.readAllBytes(file.toPath());
-            return calculateHash(fileBytes);
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = BUFFERS.get();
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return bytesToHex(digest.digest());
         } catch (IOException e) {
             throw new FileOperationException.FileAccessException("Failed to read file for hashing: " + file.getPath());
         }
@@ -26,22 +40,48 @@ public class HashUtils {
         return calculateHash(content.getBytes());
     }
 
-    private static String calculateHash(byte[] data) throws FileOperationException {
+    public static String calculateBytesHash(byte[] content) throws FileOperationException {
+        if (content == null) {
+            throw new FileOperationException("Content cannot be null");
+        }
+        return calculateHash(content);
+    }
+
+    public static MessageDigest newDigest() throws FileOperationException {
         try {
-            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
-            byte[] hash = digest.digest(data);
-            return bytesToHex(hash);
+            return MessageDigest.getInstance(HASH_ALGORITHM);
         } catch (NoSuchAlgorithmException e) {
             throw new FileOperationException("Hash algorithm not available: " + HASH_ALGORITHM);
         }
     }
 
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+    private static String calculateHash(byte[] data) throws FileOperationException {
+        return bytesToHex(newDigest().digest(data));
+    }
+
+    public static byte[] hexToBytes(String hex) {
+        if (hex == null || hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    public static String bytesToHex(byte[] bytes) {
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            result[2 * i + 1] = HEX[bytes[i] & 0xF];
         }
-        return result.toString();
+        return new String(result);
     }
 
     public static boolean compareHashes(String hash1, String hash2) {
@@ -0,0 +1,379 @@
+package utils;
+
+import exceptions.FileOperationException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class IgnoreRules {
+    public static final String FILE_NAME = ".vcsignore";
+    private static final IgnoreRules EMPTY = new IgnoreRules(List.of());
+
+    // Rules are indexed so most paths are decided by hash lookups; the last matching rule wins,
+    // exactly as with gitignore, so every index keeps the rule's position in the file.
+    private final Map<String, List<Rule>> basenames;
+    private final Map<String, List<Rule>> extensions;
+    private final List<Rule> basenameGlobs;
+    private final TrieNode anchored;
+    private final int size;
+
+    private IgnoreRules(List<Rule> rules) {
+        this.basenames = new HashMap<>();
+        this.extensions = new HashMap<>();
+        this.basenameGlobs = new ArrayList<>();
+        this.anchored = new TrieNode();
+        this.size = rules.size();
+        for (Rule rule : rules) {
+            index(rule);
+        }
+    }
+
+    public static IgnoreRules empty() {
+        return EMPTY;
+    }
+
+    public static IgnoreRules load(Path root) throws FileOperationException {
+        Path file = root.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return EMPTY;
+        }
+        try {
+            return compile(Files.readAllLines(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new FileOperationException.FileAccessException("Failed to read ignore file: " + file);
+        }
+    }
+
+    public static IgnoreRules compile(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (String line : lines) {
+            Rule rule = Rule.parse(line, rules.size());
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+        return rules.isEmpty() ? EMPTY : new IgnoreRules(rules);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Checks the path and every parent directory, since nothing below an ignored directory can be re-included.
+    public boolean isIgnored(String relativePath, boolean directory) {
+        if (size == 0) {
+            return false;
+        }
+        String[] segments = split(relativePath);
+        for (int length = 1; length < segments.length; length++) {
+            if (matches(Arrays.copyOf(segments, length), true)) {
+                return true;
+            }
+        }
+        return segments.length > 0 && matches(segments, directory);
+    }
+
+    public boolean isIgnored(Path base, Path path, boolean directory) {
+        return isIgnored(relativize(base, path), directory);
+    }
+
+    // Checks only the path itself; walkers that prune ignored directories never reach their children.
+    public boolean matches(String relativePath, boolean directory) {
+        return size != 0 && matches(split(relativePath), directory);
+    }
+
+    public static String relativize(Path base, Path path) {
+        Path relative = base.toAbsolutePath().normalize().relativize(path.toAbsolutePath().normalize());
+        StringBuilder result = new StringBuilder();
+        for (Path segment : relative) {
+            if (!result.isEmpty()) {
+                result.append('/');
+            }
+            result.append(segment);
+        }
+        return result.toString();
+    }
+
+    private boolean matches(String[] segments, boolean directory) {
+        if (segments.length == 0) {
+            return false;
+        }
+        String name = segments[segments.length - 1];
+        Rule best = null;
+
+        best = latest(best, basenames.get(name), segments, directory);
+        for (int dot = name.indexOf('.'); dot >= 0; dot = name.indexOf('.', dot + 1)) {
+            best = latest(best, extensions.get(name.substring(dot)), segments, directory);
+        }
+        best = latest(best, basenameGlobs, segments, directory);
+
+        TrieNode node = anchored;
+        best = latest(best, node.rules, segments, directory);
+        for (int i = 0; i < segments.length && (node = node.children.get(segments[i])) != null; i++) {
+            best = latest(best, node.rules, segments, directory);
+        }
+        return best != null && !best.negated;
+    }
+
+    private static Rule latest(Rule best, List<Rule> candidates, String[] segments, boolean directory) {
+        if (candidates == null) {
+            return best;
+        }
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            Rule rule = candidates.get(i);
+            if (best != null && rule.index < best.index) {
+                break;
+            }
+            if (rule.matches(segments, directory)) {
+                return rule;
+            }
+        }
+        return best;
+    }
+
+    private void index(Rule rule) {
+        if (!rule.anchored) {
+            Segment name = rule.segments[0];
+            if (name.kind == Kind.LITERAL) {
+                basenames.computeIfAbsent(name.text, key -> new ArrayList<>()).add(rule);
+            } else if (name.kind == Kind.SUFFIX && name.text.startsWith(".") && name.text.indexOf('.', 1) < 0) {
+                extensions.computeIfAbsent(name.text, key -> new ArrayList<>()).add(rule);
+            } else {
+                basenameGlobs.add(rule);
+            }
+            return;
+        }
+
+        TrieNode node = anchored;
+        for (Segment segment : rule.segments) {
+            if (segment.kind != Kind.LITERAL) {
+                break;
+            }
+            node = node.children.computeIfAbsent(segment.text, key -> new TrieNode());
+        }
+        node.rules.add(rule);
+    }
+
+    private static String[] split(String relativePath) {
+        String normalized = relativePath.replace('\\', '/');
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        while (start <= normalized.length()) {
+            int end = normalized.indexOf('/', start);
+            if (end < 0) {
+                end = normalized.length();
+            }
+            if (end > start) {
+                segments.add(normalized.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    private static class TrieNode {
+        private final Map<String, TrieNode> children = new HashMap<>();
+        private final List<Rule> rules = new ArrayList<>();
+    }
+
+    private enum Kind {
+        LITERAL,
+        SUFFIX,
+        PREFIX,
+        ANY,
+        DOUBLE_STAR,
+        GLOB
+    }
+
+    private record Segment(Kind kind, String text) {
+        static Segment compile(String pattern) {
+            if (pattern.equals("**")) {
+                return new Segment(Kind.DOUBLE_STAR, pattern);
+            }
+            if (pattern.equals("*")) {
+                return new Segment(Kind.ANY, pattern);
+            }
+            int wildcards = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                    wildcards++;
+                }
+            }
+            if (wildcards == 0) {
+                return new Segment(Kind.LITERAL, pattern);
+            }
+            if (wildcards == 1 && pattern.charAt(0) == '*') {
+                return new Segment(Kind.SUFFIX, pattern.substring(1));
+            }
+            if (wildcards == 1 && pattern.charAt(pattern.length() - 1) == '*') {
+                return new Segment(Kind.PREFIX, pattern.substring(0, pattern.length() - 1));
+            }
+            return new Segment(Kind.GLOB, pattern);
+        }
+
+        boolean matches(String name) {
+            return switch (kind) {
+                case LITERAL -> text.equals(name);
+                case SUFFIX -> name.endsWith(text);
+                case PREFIX -> name.startsWith(text);
+                case ANY, DOUBLE_STAR -> true;
+                case GLOB -> glob(text, name);
+            };
+        }
+
+        // Greedy star matching that only ever rewinds to the most recent '*', so it runs in
+        // O(pattern * name) without the exponential backtracking of a regex engine.
+        private static boolean glob(String pattern, String name) {
+            int p = 0;
+            int n = 0;
+            int starP = -1;
+            int starN = 0;
+            while (n < name.length()) {
+                if (p < pattern.length() && pattern.charAt(p) == '*') {
+                    starP = p++;
+                    starN = n;
+                    continue;
+                }
+                int next = p < pattern.length() ? matchOne(pattern, p, name.charAt(n)) : -1;
+                if (next >= 0) {
+                    p = next;
+                    n++;
+                } else if (starP >= 0) {
+                    p = starP + 1;
+                    n = ++starN;
+                } else {
+                    return false;
+                }
+            }
+            while (p < pattern.length() && pattern.charAt(p) == '*') {
+                p++;
+            }
+            return p == pattern.length();
+        }
+
+        // Returns the pattern position after consuming one character, or -1 if it does not match.
+        private static int matchOne(String pattern, int p, char c) {
+            char token = pattern.charAt(p);
+            if (token == '?') {
+                return p + 1;
+            }
+            if (token == '\\' && p + 1 < pattern.length()) {
+                return pattern.charAt(p + 1) == c ? p + 2 : -1;
+            }
+            if (token != '[') {
+                return token == c ? p + 1 : -1;
+            }
+
+            int i = p + 1;
+            boolean negate = i < pattern.length() && (pattern.charAt(i) == '!' || pattern.charAt(i) == '^');
+            if (negate) {
+                i++;
+            }
+            boolean found = false;
+            boolean first = true;
+            while (i < pattern.length() && (first || pattern.charAt(i) != ']')) {
+                char low = pattern.charAt(i);
+                if (i + 2 < pattern.length() && pattern.charAt(i + 1) == '-' && pattern.charAt(i + 2) != ']') {
+                    found |= c >= low && c <= pattern.charAt(i + 2);
+                    i += 3;
+                } else {
+                    found |= c == low;
+                    i++;
+                }
+                first = false;
+            }
+            if (i >= pattern.length()) {
+                return c == '[' ? p + 1 : -1;
+            }
+            return found != negate ? i + 1 : -1;
+        }
+    }
+
+    private static final class Rule {
+        private final Segment[] segments;
+        private final boolean anchored;
+        private final boolean directoryOnly;
+        private final boolean negated;
+        private final int index;
+
+        private Rule(Segment[] segments, boolean anchored, boolean directoryOnly, boolean negated, int index) {
+            this.segments = segments;
+            this.anchored = anchored;
+            this.directoryOnly = directoryOnly;
+            this.negated = negated;
+            this.index = index;
+        }
+
+        static Rule parse(String line, int index) {
+            String pattern = line.stripTrailing();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+            boolean negated = pattern.startsWith("!");
+            if (negated || pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            while (pattern.endsWith("/")) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            // A slash anywhere but the end ties the pattern to the repository root.
+            boolean anchored = pattern.contains("/");
+            while (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+
+            String[] parts = split(pattern);
+            if (parts.length > 1 && parts[0].equals("**")) {
+                String[] rest = Arrays.copyOfRange(parts, 1, parts.length);
+                if (rest.length == 1) {
+                    anchored = false;
+                    parts = rest;
+                }
+            }
+            Segment[] segments = new Segment[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                segments[i] = Segment.compile(parts[i]);
+            }
+            return new Rule(segments, anchored, directoryOnly, negated, index);
+        }
+
+        boolean matches(String[] path, boolean directory) {
+            if (directoryOnly && !directory) {
+                return false;
+            }
+            if (!anchored) {
+                return segments[0].matches(path[path.length - 1]);
+            }
+            return matchSegments(path);
+        }
+
+        // Dynamic programming over segments keeps '**' linear in the product of the two lengths.
+        private boolean matchSegments(String[] path) {
+            boolean[] current = new boolean[path.length + 1];
+            current[0] = true;
+            for (Segment segment : segments) {
+                boolean[] next = new boolean[path.length + 1];
+                if (segment.kind == Kind.DOUBLE_STAR) {
+                    boolean reachable = false;
+                    for (int j = 0; j <= path.length; j++) {
+                        reachable |= current[j];
+                        next[j] = reachable;
+                    }
+                } else {
+                    for (int j = 0; j < path.length; j++) {
+                        next[j + 1] = current[j] && segment.matches(path[j]);
+                    }
+                }
+                current = next;
+            }
+            return current[path.length];
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package utils;
+
+import exceptions.FileOperationException;
+import java.io.IOException;
+import java.nio.file.*;
+
+public class ObjectPaths {
+    private static final int FAN_OUT_PREFIX = 2;
+
+    public static Path objectsDir(String repositoryPath) {
+        return Paths.get(repositoryPath, ".vcs", "objects");
+    }
+
+    public static Path resolve(String repositoryPath, String hash) {
+        Path objectsDir = objectsDir(repositoryPath);
+        if (!isObjectHash(hash)) {
+            return objectsDir.resolve(hash);
+        }
+        return objectsDir
+                .resolve(hash.substring(0, FAN_OUT_PREFIX))
+                .resolve(hash.substring(FAN_OUT_PREFIX, 2 * FAN_OUT_PREFIX))
+                .resolve(hash);
+    }
+
+    public static Path locate(String repositoryPath, String hash) {
+        Path sharded = resolve(repositoryPath, hash);
+        if (Files.exists(sharded)) {
+            return sharded;
+        }
+        Path legacy = objectsDir(repositoryPath).resolve(hash);
+        if (Files.exists(legacy)) {
+            return legacy;
+        }
+        // A concurrent migration may have moved the object between the two checks.
+        return sharded;
+    }
+
+    public static boolean exists(String repositoryPath, String hash) {
+        return Files.exists(locate(repositoryPath, hash));
+    }
+
+    public static Path prepare(String repositoryPath, String hash) throws IOException {
+        Path objectPath = resolve(repositoryPath, hash);
+        Files.createDirectories(objectPath.getParent());
+        return objectPath;
+    }
+
+    public static int migrateToFanOut(String repositoryPath) throws FileOperationException {
+        Path objectsDir = objectsDir(repositoryPath);
+        if (!Files.isDirectory(objectsDir)) {
+            return 0;
+        }
+
+        int migrated = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(objectsDir,
+                path -> Files.isRegularFile(path) && isObjectHash(path.getFileName().toString()))) {
+            for (Path legacy : stream) {
+                Path target = prepare(repositoryPath, legacy.getFileName().toString());
+                if (Files.exists(target)) {
+                    Files.deleteIfExists(legacy);
+                } else {
+                    moveAtomically(legacy, target);
+                }
+                migrated++;
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Failed to migrate object directory: " + objectsDir, e);
+        }
+        return migrated;
+    }
+
+    // Publishes a finished temp object; if the object already exists the temp copy is dropped.
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileAlreadyExistsException | NoSuchFileException e) {
+            // Another writer or migrator got there first; the object is content-addressed.
+            Files.deleteIfExists(source);
+        }
+    }
+
+    public static boolean isObjectHash(String hash) {
+        if (hash == null || hash.length() <= 2 * FAN_OUT_PREFIX) {
+            return false;
+        }
+        for (int i = 0; i < hash.length(); i++) {
+            char c = hash.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
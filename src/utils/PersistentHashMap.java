@@ -0,0 +1,492 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.*;
+
+// An immutable hash array mapped trie. Every update returns a new map that shares all the nodes
+// off the changed key's path with the old one, so deriving a version's files from its parent's
+// costs a few small arrays instead of a copy of the whole table. The map is its own read-only view.
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    // Seven bitmap levels cover a 32-bit hash; keys with equal hashes share one collision node below them.
+    private static final int MAX_DEPTH = 8;
+    private static final Object NOT_FOUND = new Object();
+    private static final Object[] NO_SLOTS = new Object[0];
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final transient Node root;
+    private final transient int size;
+    private transient Set<Map.Entry<K, V>> entries;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    // A map that is already persistent is returned as it is.
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap<?, ?> persistent) {
+            return (PersistentHashMap<K, V>) persistent;
+        }
+        return PersistentHashMap.<K, V>empty().plusAll(map);
+    }
+
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        int[] count = {size};
+        Node updated = put(root, null, key, value, count);
+        return updated == root ? this : new PersistentHashMap<>(updated, count[0]);
+    }
+
+    // Nodes created during one call are owned by it and updated in place, so a bulk load only
+    // allocates along each path once.
+    public PersistentHashMap<K, V> plusAll(Map<? extends K, ? extends V> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        if (root == null && changes instanceof PersistentHashMap<?, ?>) {
+            return copyOf(changes);
+        }
+        Object edit = new Object();
+        int[] count = {size};
+        Node updated = root;
+        for (Map.Entry<? extends K, ? extends V> change : changes.entrySet()) {
+            updated = put(updated, edit, change.getKey(), change.getValue(), count);
+        }
+        return updated == root ? this : new PersistentHashMap<>(updated, count[0]);
+    }
+
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (root == null) {
+            return this;
+        }
+        int[] count = {size};
+        Node updated = root.remove(0, hash(key), key, count);
+        if (updated == root) {
+            return this;
+        }
+        return updated == null ? empty() : new PersistentHashMap<>(updated, count[0]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != NOT_FOUND;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Object value = find(key);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entries == null) {
+            entries = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entries;
+    }
+
+    private static Node put(Node root, Object edit, Object key, Object value, int[] count) {
+        Node node = root != null ? root : new BitmapNode(edit, 0, NO_SLOTS);
+        return node.put(edit, 0, new Leaf(hash(key), key, value), count);
+    }
+
+    private Object find(Object key) {
+        int hash = hash(key);
+        Object node = root;
+        int shift = 0;
+        while (node != null) {
+            if (node instanceof BitmapNode bitmapNode) {
+                int bit = 1 << ((hash >>> shift) & MASK);
+                if ((bitmapNode.bitmap & bit) == 0) {
+                    return NOT_FOUND;
+                }
+                node = bitmapNode.slots[Integer.bitCount(bitmapNode.bitmap & (bit - 1))];
+                shift += BITS;
+            } else if (node instanceof CollisionNode collisionNode) {
+                int index = collisionNode.hash == hash ? collisionNode.indexOf(key) : -1;
+                return index >= 0 ? ((Leaf) collisionNode.slots[index]).value : NOT_FOUND;
+            } else {
+                Leaf leaf = (Leaf) node;
+                return leaf.matches(hash, key) ? leaf.value : NOT_FOUND;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // Builds the smallest subtree holding two leaves that share the hash bits above this shift.
+    private static Node merge(Object edit, int shift, Leaf first, Leaf second) {
+        if (first.hash == second.hash) {
+            return new CollisionNode(edit, first.hash, new Object[]{first, second});
+        }
+        int firstIndex = (first.hash >>> shift) & MASK;
+        int secondIndex = (second.hash >>> shift) & MASK;
+        if (firstIndex == secondIndex) {
+            return new BitmapNode(edit, 1 << firstIndex, new Object[]{merge(edit, shift + BITS, first, second)});
+        }
+        return new BitmapNode(edit, (1 << firstIndex) | (1 << secondIndex),
+                firstIndex < secondIndex ? new Object[]{first, second} : new Object[]{second, first});
+    }
+
+    private abstract static class Node {
+        final Object edit;
+        Object[] slots;
+
+        Node(Object edit, Object[] slots) {
+            this.edit = edit;
+            this.slots = slots;
+        }
+
+        abstract Node put(Object edit, int shift, Leaf leaf, int[] count);
+
+        // Returns null once the node holds nothing.
+        abstract Node remove(int shift, int hash, Object key, int[] count);
+
+        boolean ownedBy(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+
+        Leaf singleLeaf() {
+            return slots.length == 1 && slots[0] instanceof Leaf leaf ? leaf : null;
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+        int bitmap;
+
+        BitmapNode(Object edit, int bitmap, Object[] slots) {
+            super(edit, slots);
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        Node put(Object edit, int shift, Leaf leaf, int[] count) {
+            int bit = 1 << ((leaf.hash >>> shift) & MASK);
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] grown = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, grown, 0, index);
+                grown[index] = leaf;
+                System.arraycopy(slots, index, grown, index + 1, slots.length - index);
+                count[0]++;
+                if (ownedBy(edit)) {
+                    bitmap |= bit;
+                    slots = grown;
+                    return this;
+                }
+                return new BitmapNode(edit, bitmap | bit, grown);
+            }
+
+            Object slot = slots[index];
+            Object replacement;
+            if (slot instanceof Node child) {
+                replacement = child.put(edit, shift + BITS, leaf, count);
+            } else {
+                Leaf existing = (Leaf) slot;
+                if (existing.matches(leaf.hash, leaf.key)) {
+                    if (Objects.equals(existing.value, leaf.value)) {
+                        return this;
+                    }
+                    replacement = leaf;
+                } else {
+                    count[0]++;
+                    replacement = merge(edit, shift + BITS, existing, leaf);
+                }
+            }
+            return replacement == slot ? this : replace(edit, index, replacement);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key, int[] count) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = Integer.bitCount(bitmap & (bit - 1));
+            Object slot = slots[index];
+            if (slot instanceof Node child) {
+                Node removed = child.remove(shift + BITS, hash, key, count);
+                if (removed == child) {
+                    return this;
+                }
+                if (removed != null) {
+                    // A subtree reduced to one leaf folds back into this node.
+                    Leaf leaf = removed.singleLeaf();
+                    return replace(null, index, leaf != null ? leaf : removed);
+                }
+            } else if (((Leaf) slot).matches(hash, key)) {
+                count[0]--;
+            } else {
+                return this;
+            }
+
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] shrunk = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, shrunk, 0, index);
+            System.arraycopy(slots, index + 1, shrunk, index, shrunk.length - index);
+            return new BitmapNode(null, bitmap & ~bit, shrunk);
+        }
+
+        private Node replace(Object edit, int index, Object slot) {
+            if (ownedBy(edit)) {
+                slots[index] = slot;
+                return this;
+            }
+            Object[] copy = slots.clone();
+            copy[index] = slot;
+            return new BitmapNode(edit, bitmap, copy);
+        }
+    }
+
+    private static final class CollisionNode extends Node {
+        final int hash;
+
+        CollisionNode(Object edit, int hash, Object[] slots) {
+            super(edit, slots);
+            this.hash = hash;
+        }
+
+        @Override
+        Node put(Object edit, int shift, Leaf leaf, int[] count) {
+            if (leaf.hash != hash) {
+                BitmapNode parent = new BitmapNode(edit, 1 << ((hash >>> shift) & MASK), new Object[]{this});
+                return parent.put(edit, shift, leaf, count);
+            }
+            int index = indexOf(leaf.key);
+            if (index >= 0) {
+                if (Objects.equals(((Leaf) slots[index]).value, leaf.value)) {
+                    return this;
+                }
+                if (ownedBy(edit)) {
+                    slots[index] = leaf;
+                    return this;
+                }
+                Object[] copy = slots.clone();
+                copy[index] = leaf;
+                return new CollisionNode(edit, hash, copy);
+            }
+            Object[] grown = Arrays.copyOf(slots, slots.length + 1);
+            grown[slots.length] = leaf;
+            count[0]++;
+            if (ownedBy(edit)) {
+                slots = grown;
+                return this;
+            }
+            return new CollisionNode(edit, hash, grown);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key, int[] count) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            count[0]--;
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] shrunk = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, shrunk, 0, index);
+            System.arraycopy(slots, index + 1, shrunk, index, shrunk.length - index);
+            return new CollisionNode(null, this.hash, shrunk);
+        }
+
+        int indexOf(Object key) {
+            for (int i = 0; i < slots.length; i++) {
+                if (Objects.equals(((Leaf) slots[i]).key, key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Leaf implements Map.Entry<Object, Object> {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean matches(int hash, Object key) {
+            return this.hash == hash && Objects.equals(this.key, key);
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> entry
+                    && Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    // Depth-first over the trie with one slot cursor per level.
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private final Object[][] levels = new Object[MAX_DEPTH][];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth = -1;
+        private Leaf next;
+
+        EntryIterator() {
+            if (root != null) {
+                push(root);
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<?, ?> entry = next;
+            advance();
+            return (Map.Entry<K, V>) entry;
+        }
+
+        private void push(Node node) {
+            depth++;
+            levels[depth] = node.slots;
+            positions[depth] = 0;
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                if (positions[depth] == levels[depth].length) {
+                    levels[depth--] = null;
+                } else if (levels[depth][positions[depth]++] instanceof Leaf leaf) {
+                    next = leaf;
+                    return;
+                } else {
+                    push((Node) levels[depth][positions[depth] - 1]);
+                }
+            }
+        }
+    }
+
+    @Serial
+    private Object writeReplace() {
+        return new SerializedForm(this);
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Serialized through SerializedForm");
+    }
+
+    // Nodes are not serialized; the entries are written flat and the trie is rebuilt on read.
+    private static final class SerializedForm implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private transient PersistentHashMap<?, ?> map;
+
+        SerializedForm(PersistentHashMap<?, ?> map) {
+            this.map = map;
+        }
+
+        @Serial
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.writeObject(entry.getKey());
+                out.writeObject(entry.getValue());
+            }
+        }
+
+        @Serial
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            int size = in.readInt();
+            if (size < 0) {
+                throw new InvalidObjectException("Negative map size: " + size);
+            }
+            Object edit = new Object();
+            int[] count = {0};
+            Node root = null;
+            for (int i = 0; i < size; i++) {
+                root = put(root, edit, in.readObject(), in.readObject(), count);
+            }
+            map = root == null ? empty() : new PersistentHashMap<>(root, count[0]);
+        }
+
+        @Serial
+        private Object readResolve() {
+            return map;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package utils;
+
+import model.VersionInfo;
+import exceptions.FileOperationException;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Layout: magic, format version, then varint-prefixed fields and a trailing CRC32 of everything before it.
+// Paths are written sorted with the length of the prefix shared with the previous path, and
+// content hashes as 32 raw bytes, so a version costs little more than its distinct path suffixes.
+// Format 2 adds a flags byte: an optional snapshot tree root (versions that have one may leave the
+// file table empty) and whether the version is a delta on its predecessor. Format 3 follows the tree root
+// with the number of files under it, so a header alone can report the file count.
+public class VersionCodec {
+    private static final byte[] MAGIC = {'V', 'V', 'E', 'R'};
+    private static final int FORMAT_VERSION = 3;
+    private static final int HASH_LENGTH = 32;
+    private static final int HASH_TEXT = 0;
+    private static final int HASH_RAW = 1;
+    private static final int CRC_LENGTH = Integer.BYTES;
+    private static final int FLAG_TREE = 1;
+    private static final int FLAG_DELTA = 2;
+
+    public static boolean isEncoded(byte[] data) {
+        return data.length >= MAGIC.length && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    public static byte[] encode(VersionInfo version) {
+        return encode(version, version.getFileCount());
+    }
+
+    // The file count only matters for versions whose files live in their snapshot tree.
+    public static byte[] encode(VersionInfo version, int fileCount) {
+        Map<String, String> fileHashes = version.getFileHashesView();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + fileHashes.size() * 48);
+        out.writeBytes(MAGIC);
+        out.write(FORMAT_VERSION);
+        writeString(out, version.getVersionId());
+        writeString(out, version.getMessage());
+        writeString(out, version.getAuthor());
+        LocalDateTime timestamp = version.getTimestamp();
+        out.write(timestamp != null ? 1 : 0);
+        if (timestamp != null) {
+            DeltaCodec.writeVarint(out, zigZag(timestamp.toEpochSecond(ZoneOffset.UTC)));
+            DeltaCodec.writeVarint(out, timestamp.getNano());
+        }
+        out.write((version.getTreeHash() != null ? FLAG_TREE : 0) | (version.isDelta() ? FLAG_DELTA : 0));
+        if (version.getTreeHash() != null) {
+            writeHash(out, version.getTreeHash());
+            DeltaCodec.writeVarint(out, fileCount);
+        }
+
+        List<String> paths = new ArrayList<>(fileHashes.keySet());
+        Collections.sort(paths);
+        DeltaCodec.writeVarint(out, paths.size());
+        byte[] previous = new byte[0];
+        for (String path : paths) {
+            byte[] current = path.getBytes(StandardCharsets.UTF_8);
+            int shared = Math.max(0, Arrays.mismatch(previous, current));
+            DeltaCodec.writeVarint(out, shared);
+            DeltaCodec.writeVarint(out, current.length - shared);
+            out.write(current, shared, current.length - shared);
+            writeHash(out, fileHashes.get(path));
+            previous = current;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(out.toByteArray());
+        out.writeBytes(ByteBuffer.allocate(CRC_LENGTH).putInt((int) crc.getValue()).array());
+        return out.toByteArray();
+    }
+
+    public static VersionInfo decode(byte[] data) throws FileOperationException {
+        return decode(data, true);
+    }
+
+    // Verifies the whole record but skips building the file table, for callers that only index versions.
+    public static VersionInfo decodeHeader(byte[] data) throws FileOperationException {
+        return decode(data, false, null);
+    }
+
+    // As decodeHeader, also storing the version's file count in fileCount[0], or -1 for older records
+    // whose tree does not say.
+    public static VersionInfo decodeHeader(byte[] data, int[] fileCount) throws FileOperationException {
+        return decode(data, false, fileCount);
+    }
+
+    private static VersionInfo decode(byte[] data, boolean withFiles) throws FileOperationException {
+        return decode(data, withFiles, null);
+    }
+
+    private static VersionInfo decode(byte[] data, boolean withFiles, int[] fileCount) throws FileOperationException {
+        if (!isEncoded(data) || data.length < MAGIC.length + 1 + CRC_LENGTH) {
+            throw new FileOperationException.FileCorruptedException("Not an encoded version");
+        }
+        int end = data.length - CRC_LENGTH;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, end);
+        if ((int) crc.getValue() != ByteBuffer.wrap(data, end, CRC_LENGTH).getInt()) {
+            throw new FileOperationException.FileCorruptedException("Version checksum mismatch");
+        }
+        int format = data[MAGIC.length];
+        if (format < 1 || format > FORMAT_VERSION) {
+            throw new FileOperationException.FileCorruptedException("Unsupported version format: " + format);
+        }
+
+        int[] cursor = {MAGIC.length + 1};
+        try {
+            String versionId = readString(data, cursor);
+            String message = readString(data, cursor);
+            String author = readString(data, cursor);
+            LocalDateTime timestamp = null;
+            if (data[cursor[0]++] != 0) {
+                long seconds = unZigZag(DeltaCodec.readVarint(data, cursor));
+                int nanos = (int) DeltaCodec.readVarint(data, cursor);
+                timestamp = LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+            }
+            int flags = format >= 2 ? data[cursor[0]++] : 0;
+            String treeHash = (flags & FLAG_TREE) != 0 ? readHash(data, cursor) : null;
+            int treeFiles = treeHash != null && format >= 3 ? (int) DeltaCodec.readVarint(data, cursor) : -1;
+            boolean delta = (flags & FLAG_DELTA) != 0;
+            int count = (int) DeltaCodec.readVarint(data, cursor);
+            if (fileCount != null) {
+                fileCount[0] = treeHash == null ? count : treeFiles;
+            }
+            if (!withFiles) {
+                return new VersionInfo(versionId, message, timestamp, author, Map.of(), treeHash, delta);
+            }
+
+            Map<String, String> fileHashes = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+            byte[] previous = new byte[0];
+            for (int i = 0; i < count; i++) {
+                int shared = (int) DeltaCodec.readVarint(data, cursor);
+                int suffix = (int) DeltaCodec.readVarint(data, cursor);
+                byte[] current = Arrays.copyOf(previous, shared + suffix);
+                System.arraycopy(data, cursor[0], current, shared, suffix);
+                cursor[0] += suffix;
+                fileHashes.put(new String(current, StandardCharsets.UTF_8), readHash(data, cursor));
+                previous = current;
+            }
+            if (cursor[0] != end) {
+                throw new FileOperationException.FileCorruptedException("Trailing data in version");
+            }
+            return new VersionInfo(versionId, message, timestamp, author, fileHashes, treeHash, delta);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | DateTimeException e) {
+            throw new FileOperationException.FileCorruptedException("Malformed version record");
+        }
+    }
+
+    // Nullable strings: 0 means null, otherwise the UTF-8 length plus one.
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            DeltaCodec.writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        DeltaCodec.writeVarint(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(byte[] data, int[] cursor) {
+        int length = (int) DeltaCodec.readVarint(data, cursor);
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(data, cursor[0], length - 1, StandardCharsets.UTF_8);
+        cursor[0] += length - 1;
+        return value;
+    }
+
+    private static void writeHash(ByteArrayOutputStream out, String hash) {
+        byte[] raw = hash != null ? HashUtils.hexToBytes(hash) : null;
+        if (raw != null && raw.length == HASH_LENGTH && HashUtils.bytesToHex(raw).equals(hash)) {
+            out.write(HASH_RAW);
+            out.write(raw, 0, raw.length);
+        } else {
+            out.write(HASH_TEXT);
+            writeString(out, hash);
+        }
+    }
+
+    private static String readHash(byte[] data, int[] cursor) {
+        if (data[cursor[0]++] == HASH_RAW) {
+            if (cursor[0] + HASH_LENGTH > data.length) {
+                throw new IndexOutOfBoundsException("truncated hash");
+            }
+            String hash = HashUtils.bytesToHex(Arrays.copyOfRange(data, cursor[0], cursor[0] + HASH_LENGTH));
+            cursor[0] += HASH_LENGTH;
+            return hash;
+        }
+        return readString(data, cursor);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
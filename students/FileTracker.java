@@ -1,5 +1,6 @@
 package impl;
 
+import interfaces.ObjectStore;
 import interfaces.Trackable;
 import model.*;
 import utils.*;
@@ -8,25 +9,103 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 
 public class FileTracker implements Trackable {
     private final String repositoryPath;
     private final Map<String, FileMetadata> fileMetadata;
     private final Set<String> trackedFiles;
+    private final Set<String> stagedFiles;
     private final List<Consumer<String>> fileChangeListeners;
+    private final ObjectStore objectStore;
+    private final StatCache statCache;
+    private final TrackerIndex index;
+    private final IngestPipeline ingestPipeline;
+    private final UntrackedCache untrackedCache;
+    private final FileEventBus eventBus;
+    private volatile FileWatcher watcher;
 
     public FileTracker(String repositoryPath) throws FileOperationException {
+        this(repositoryPath, new LooseObjectStore(repositoryPath));
+    }
+
+    public FileTracker(String repositoryPath, ObjectStore objectStore) throws FileOperationException {
         this.repositoryPath = repositoryPath;
+        this.objectStore = objectStore;
+        this.statCache = new StatCache();
+        this.index = new TrackerIndex(repositoryPath);
+        this.ingestPipeline = new IngestPipeline(objectStore, statCache);
+        this.untrackedCache = new UntrackedCache(Paths.get(repositoryPath));
         this.fileMetadata = new ConcurrentHashMap<>();
         this.trackedFiles = Collections.synchronizedSet(new HashSet<>());
-        this.fileChangeListeners = new ArrayList<>();
+        this.stagedFiles = ConcurrentHashMap.newKeySet();
+        this.fileChangeListeners = new CopyOnWriteArrayList<>();
+        this.eventBus = new FileEventBus(fileChangeListeners);
         try {
-            Files.createDirectories(Paths.get(repositoryPath, ".vcs", "objects"));
+            Files.createDirectories(ObjectPaths.objectsDir(repositoryPath));
         } catch (IOException e) {
             throw new FileOperationException("Failed to initialize repository structure", e);
         }
+        loadIndex();
+    }
+
+    private void loadIndex() throws FileOperationException {
+        for (TrackerIndex.Entry entry : index.load()) {
+            FileMetadata metadata = new FileMetadata(entry.path(), entry.hash());
+            for (String versionId : entry.versions()) {
+                metadata.addVersion(versionId);
+            }
+            metadata.setStatus(entry.status());
+            if (entry.stagedHash() != null) {
+                metadata.setStagedHash(entry.stagedHash());
+                stagedFiles.add(entry.path());
+            }
+            fileMetadata.put(entry.path(), metadata);
+            trackedFiles.add(entry.path());
+            if (entry.stat() != null) {
+                statCache.putStat(entry.path(), entry.stat());
+            }
+        }
+    }
+
+    // Rewrites the whole index; routine changes only append the touched entries to the index log.
+    public synchronized void saveIndex() throws FileOperationException {
+        List<TrackerIndex.Entry> entries = new ArrayList<>();
+        for (String filePath : getTrackedFiles()) {
+            TrackerIndex.Entry entry = indexEntry(filePath);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        index.write(entries);
+    }
+
+    private void saveIndexEntries(Collection<String> filePaths) throws FileOperationException {
+        List<TrackerIndex.Entry> entries = new ArrayList<>(filePaths.size());
+        for (String filePath : filePaths) {
+            TrackerIndex.Entry entry = indexEntry(filePath);
+            if (entry != null) {
+                entries.add(entry);
+            } else {
+                index.remove(filePath);
+            }
+        }
+        if (!entries.isEmpty()) {
+            index.putAll(entries);
+        }
+    }
+
+    private TrackerIndex.Entry indexEntry(String filePath) {
+        FileMetadata metadata = fileMetadata.get(filePath);
+        if (metadata == null || !trackedFiles.contains(filePath)) {
+            return null;
+        }
+        return new TrackerIndex.Entry(filePath, metadata.getCurrentHash(), metadata.getStatus(),
+                metadata.getVersions(), statCache.getStat(filePath), metadata.getStagedHash());
     }
 
     public boolean trackFile(File file) throws VCSException, IOException {
@@ -34,13 +113,16 @@ public class FileTracker implements Trackable {
             throw new FileOperationException.FileNotFoundException(file.getPath());
         }
 
-        String hash = HashUtils.calculateFileHash(file);
-        Path objectsPath = Paths.get(repositoryPath, ".vcs", "objects");
-        Files.copy(file.toPath(), objectsPath.resolve(hash), StandardCopyOption.REPLACE_EXISTING);
+        String hash = ingestPipeline.ingest(file.toPath(), getFileHash(file.getPath()));
 
+        // Fresh metadata has nothing staged, so any earlier staging of this path is dropped with it.
         FileMetadata metadata = new FileMetadata(file.getPath(), hash);
         fileMetadata.put(file.getPath(), metadata);
+        stagedFiles.remove(file.getPath());
         trackedFiles.add(file.getPath());
+        if (watcher != null) {
+            watcher.watch(file.getPath());
+        }
         notifyFileChanged(file.getPath());
 
         return true;
@@ -85,9 +167,12 @@ public class FileTracker implements Trackable {
     }
 
     private void notifyFileChanged(String filePath) {
-        for (Consumer<String> listener : fileChangeListeners) {
-            listener.accept(filePath);
+        try {
+            saveIndexEntries(List.of(filePath));
+        } catch (FileOperationException e) {
+            // Listeners still need the event; the entry is appended again on its next change.
         }
+        eventBus.publish(filePath);
     }
 
     public void updateFileStatus(String filePath) throws VCSException {
@@ -97,10 +182,10 @@ public class FileTracker implements Trackable {
             if (!file.exists()) {
                 metadata.setStatus(FileStatus.DELETED);
             } else {
-                String newHash = storeFileContent(file);
+                String newHash = statCache.hash(file.toPath());
                 if (!newHash.equals(metadata.getCurrentHash())) {
                     metadata.setStatus(FileStatus.MODIFIED);
-                    metadata.setCurrentHash(newHash);
+                    metadata.setCurrentHash(storeFileContent(file));
                 }
             }
             notifyFileChanged(filePath);
@@ -108,23 +193,37 @@ public class FileTracker implements Trackable {
     }
 
     private String storeFileContent(File file) throws VCSException {
-        try {
-            String hash = HashUtils.calculateFileHash(file);
-            Path objectsPath = Paths.get(repositoryPath, ".vcs", "objects");
-            if (!Files.exists(objectsPath)) {
-                Files.createDirectories(objectsPath);
+        return ingestPipeline.ingest(file.toPath(), getFileHash(file.getPath()));
+    }
+
+    public Map<String, String> trackFiles(Collection<File> files) throws VCSException {
+        List<Path> paths = new ArrayList<>(files.size());
+        Map<Path, String> expected = new HashMap<>();
+        for (File file : files) {
+            if (!file.isFile()) {
+                throw new FileOperationException.FileNotFoundException(file.getPath());
+            }
+            paths.add(file.toPath());
+            String previous = getFileHash(file.getPath());
+            if (previous != null) {
+                expected.put(file.toPath(), previous);
             }
+        }
 
-            Path objectFile = objectsPath.resolve(hash);
-            synchronized(this) {
-                if (!Files.exists(objectFile)) {
-                    Files.copy(file.toPath(), objectFile, StandardCopyOption.REPLACE_EXISTING);
-                }
+        Map<Path, String> hashes = ingestPipeline.ingestAll(paths, expected);
+        Map<String, String> tracked = new LinkedHashMap<>();
+        for (File file : files) {
+            String hash = hashes.get(file.toPath());
+            fileMetadata.put(file.getPath(), new FileMetadata(file.getPath(), hash));
+            trackedFiles.add(file.getPath());
+            tracked.put(file.getPath(), hash);
+            if (watcher != null) {
+                watcher.watch(file.getPath());
             }
-            return hash;
-        } catch (IOException e) {
-            throw new FileOperationException("Failed to store file content: " + file.getPath(), e);
         }
+        saveIndexEntries(tracked.keySet());
+        eventBus.publishAll(tracked.keySet());
+        return tracked;
     }
 
     public void commitFile(String filePath, String versionId) {
@@ -136,6 +235,145 @@ public class FileTracker implements Trackable {
         }
     }
 
+    public void commitFiles(Collection<String> filePaths, String versionId) throws FileOperationException {
+        List<String> committed = new ArrayList<>();
+        for (String filePath : filePaths) {
+            FileMetadata metadata = fileMetadata.get(filePath);
+            if (metadata != null) {
+                metadata.addVersion(versionId);
+                metadata.setStatus(FileStatus.TRACKED);
+                committed.add(filePath);
+            }
+        }
+        saveIndexEntries(committed);
+        eventBus.publishAll(committed);
+    }
+
+    public String stageFile(String filePath) throws VCSException, IOException {
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            throw new FileOperationException.FileNotFoundException(filePath);
+        }
+        FileMetadata metadata = fileMetadata.get(filePath);
+        if (metadata == null) {
+            trackFile(file);
+            metadata = fileMetadata.get(filePath);
+        }
+
+        String hash = ingestPipeline.ingest(file.toPath(), metadata.getCurrentHash());
+        metadata.setStagedHash(hash);
+        metadata.setStatus(FileStatus.STAGED);
+        stagedFiles.add(filePath);
+        notifyFileChanged(filePath);
+        return hash;
+    }
+
+    public void unstageFile(String filePath) throws VCSException {
+        FileMetadata metadata = fileMetadata.get(filePath);
+        if (metadata == null || !stagedFiles.remove(filePath)) {
+            return;
+        }
+        metadata.setStagedHash(null);
+        File file = new File(filePath);
+        boolean modified = !file.isFile() || !statCache.hash(file.toPath()).equals(metadata.getCurrentHash());
+        metadata.setStatus(modified ? FileStatus.MODIFIED : FileStatus.TRACKED);
+        notifyFileChanged(filePath);
+    }
+
+    public Map<String, String> getStagedHashes() {
+        Map<String, String> staged = new HashMap<>();
+        for (String filePath : stagedFiles) {
+            FileMetadata metadata = fileMetadata.get(filePath);
+            if (metadata != null && metadata.getStagedHash() != null) {
+                staged.put(filePath, metadata.getStagedHash());
+            }
+        }
+        return staged;
+    }
+
+    public boolean hasStagedFiles() {
+        for (String filePath : stagedFiles) {
+            FileMetadata metadata = fileMetadata.get(filePath);
+            if (metadata != null && metadata.getStagedHash() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Only the staged entries are touched, so the cost is independent of how many files are tracked.
+    public void commitStaged(Map<String, String> staged, String versionId) throws FileOperationException {
+        for (Map.Entry<String, String> entry : staged.entrySet()) {
+            FileMetadata metadata = fileMetadata.get(entry.getKey());
+            if (metadata != null) {
+                metadata.setCurrentHash(entry.getValue());
+                metadata.setStagedHash(null);
+                metadata.addVersion(versionId);
+            }
+            stagedFiles.remove(entry.getKey());
+        }
+        saveIndexEntries(staged.keySet());
+        eventBus.publishAll(staged.keySet());
+    }
+
+    public Map<String, FileStatus> scanStatus() throws VCSException {
+        return scanStatus(true);
+    }
+
+    // Tracked paths are checked on the ingest pool, using the stat cache so only suspicious files are hashed.
+    public Map<String, FileStatus> scanStatus(boolean includeUntracked) throws VCSException {
+        List<String> tracked = getTrackedFiles();
+        Map<String, FileStatus> statuses = new ConcurrentHashMap<>();
+        try {
+            ingestPipeline.pool().submit(() -> tracked.parallelStream().forEach(filePath -> {
+                FileStatus status = scanFile(filePath);
+                if (status != null) {
+                    statuses.put(filePath, status);
+                }
+            })).get();
+        } catch (ExecutionException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof VCSException vcsException) {
+                    throw vcsException;
+                }
+            }
+            throw new FileOperationException("Failed to scan file status", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileOperationException("Interrupted while scanning file status", e);
+        }
+
+        if (includeUntracked) {
+            Set<Path> known = new HashSet<>();
+            for (String filePath : tracked) {
+                known.add(Paths.get(filePath).toAbsolutePath().normalize());
+            }
+            for (Path candidate : untrackedCache.listFiles()) {
+                if (!known.contains(candidate.toAbsolutePath().normalize())) {
+                    statuses.put(candidate.toString(), FileStatus.UNTRACKED);
+                }
+            }
+        }
+        return new HashMap<>(statuses);
+    }
+
+    private FileStatus scanFile(String filePath) {
+        FileMetadata metadata = fileMetadata.get(filePath);
+        if (metadata == null) {
+            return null;
+        }
+        Path file = Paths.get(filePath);
+        if (!Files.isRegularFile(file)) {
+            return FileStatus.DELETED;
+        }
+        try {
+            String currentHash = statCache.hash(file);
+            return currentHash.equals(metadata.getCurrentHash()) ? metadata.getStatus() : FileStatus.MODIFIED;
+        } catch (VCSException e) {
+            throw new CompletionException(e);
+        }
+    }
+
     public FileMetadata getFileMetadata(String filePath) {
         return fileMetadata.get(filePath);
     }
@@ -151,10 +389,52 @@ public class FileTracker implements Trackable {
             return true;
         }
 
-        String currentHash = HashUtils.calculateFileHash(file);
+        String currentHash = statCache.hash(file.toPath());
         return !currentHash.equals(metadata.getCurrentHash());
     }
 
+    public ObjectStore getObjectStore() {
+        return objectStore;
+    }
+
+    public synchronized FileWatcher startWatching() throws FileOperationException {
+        return startWatching(100);
+    }
+
+    public synchronized FileWatcher startWatching(long debounceMillis) throws FileOperationException {
+        if (watcher == null) {
+            watcher = new FileWatcher(this, debounceMillis);
+        }
+        return watcher;
+    }
+
+    public synchronized void stopWatching() throws FileOperationException {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    public FileEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public FileWatcher getWatcher() {
+        return watcher;
+    }
+
+    public StatCache getStatCache() {
+        return statCache;
+    }
+
+    public TrackerIndex getIndex() {
+        return index;
+    }
+
+    public IngestPipeline getIngestPipeline() {
+        return ingestPipeline;
+    }
+
     public String getFileHash(String filePath) {
         FileMetadata metadata = fileMetadata.get(filePath);
         return metadata != null ? metadata.getCurrentHash() : null;